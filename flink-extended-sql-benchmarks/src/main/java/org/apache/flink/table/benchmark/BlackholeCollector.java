@@ -0,0 +1,34 @@
+package org.apache.flink.table.benchmark;
+
+import org.apache.flink.util.Collector;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 输出交给 Blackhole 消费, 避免 JIT 消除; 同时记录输出条数
+ * */
+public final class BlackholeCollector<T> implements Collector<T> {
+
+  private final Blackhole blackhole;
+
+  private long count;
+
+  public BlackholeCollector(Blackhole blackhole) {
+    this.blackhole = blackhole;
+  }
+
+  @Override
+  public void collect(T record) {
+    count++;
+    blackhole.consume(record);
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public void close() {
+
+  }
+
+}
@@ -0,0 +1,195 @@
+package org.apache.flink.table.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 端到端基准测试统计: MiniCluster 与驱动程序同一 JVM, Sink 及规则源直接写入静态实例.
+ *
+ * 延迟仅统计带发送时间的采样行; 直方图按 2 的幂分段, 每段 16 个线性桶, 相对误差不超过 1/16.
+ * 时间线按到达时间每 10ms 一个桶, 记录采样行数及最大延迟, 用于计算规则切换前后的停顿.
+ * */
+public final class DynamicBenchmarkRecorder {
+
+  private static final DynamicBenchmarkRecorder INSTANCE = new DynamicBenchmarkRecorder();
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LATENCY_BUCKETS = 64 * SUB_BUCKETS;
+
+  public static final long TIMELINE_BUCKET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  // System.nanoTime() 可能为负, 以类加载时间为起点, 负数可用于表示未采样
+  private static final long ORIGIN_NANOS = System.nanoTime();
+
+  private final LongAdder records = new LongAdder();
+
+  private volatile AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS);
+
+  // 统计区间, 未开始时为空
+  private volatile Timeline timeline;
+  private final List<Long> swapNanos = new ArrayList<>();
+
+  private DynamicBenchmarkRecorder() {
+
+  }
+
+  public static DynamicBenchmarkRecorder get() {
+    return INSTANCE;
+  }
+
+  /**
+   * 非负单调时钟(ns), 数据源发送时间及延迟计算均使用该时钟
+   * */
+  public static long clock() {
+    return System.nanoTime() - ORIGIN_NANOS;
+  }
+
+  // ------------------------------------------------------------------------
+  // 作业侧调用
+  // ------------------------------------------------------------------------
+
+  public void recordOutput() {
+    records.increment();
+  }
+
+  /**
+   * @param sendNanos 数据源发送时的 {@link #clock()}
+   * */
+  public void recordLatency(long sendNanos) {
+    long now = clock();
+    long latencyNanos = Math.max(0, now - sendNanos);
+    latencies.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+
+    Timeline current = timeline;
+    if (current != null) {
+      current.record(now, latencyNanos);
+    }
+  }
+
+  /**
+   * 规则源发出新执行计划
+   * */
+  public synchronized void recordSwap() {
+    if (timeline != null) {
+      swapNanos.add(clock());
+    }
+  }
+
+  // ------------------------------------------------------------------------
+  // 驱动程序调用
+  // ------------------------------------------------------------------------
+
+  /**
+   * 预热结束, 开始统计
+   * */
+  public synchronized void start(long durationMillis) {
+    int timelineBuckets = (int) (TimeUnit.MILLISECONDS.toNanos(durationMillis) / TIMELINE_BUCKET_NANOS) + 1;
+    swapNanos.clear();
+    latencies = new AtomicLongArray(LATENCY_BUCKETS);
+    timeline = new Timeline(clock(), timelineBuckets);
+    records.reset();
+  }
+
+  /**
+   * 结束统计
+   *
+   * @param swapWindowMillis 每次切换后计算停顿的时间窗口
+   * */
+  public synchronized DynamicBenchmarkReport stop(long swapWindowMillis) {
+    Timeline current = timeline;
+    if (current == null) {
+      throw new IllegalStateException("Recorder not started.");
+    }
+    timeline = null;
+    long startNanos = current.startNanos;
+    long elapsedNanos = clock() - startNanos;
+    long outputs = records.sum();
+    AtomicLongArray counts = current.counts;
+    AtomicLongArray maxLatencies = current.maxLatencies;
+
+    long[] histogram = new long[LATENCY_BUCKETS];
+    for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+      histogram[i] = latencies.get(i);
+    }
+
+    int windowBuckets = (int) Math.max(1, TimeUnit.MILLISECONDS.toNanos(swapWindowMillis) / TIMELINE_BUCKET_NANOS);
+    List<DynamicBenchmarkReport.SwapPause> pauses = new ArrayList<>();
+    for (long swap : swapNanos) {
+      int from = (int) ((swap - startNanos) / TIMELINE_BUCKET_NANOS);
+      int to = Math.min(counts.length(), from + windowBuckets);
+      // 窗口未完整覆盖的切换不统计
+      if (from + windowBuckets > counts.length()) {
+        continue;
+      }
+      long maxLatencyNanos = 0;
+      int longestGap = 0;
+      int gap = 0;
+      for (int i = from; i < to; ++i) {
+        maxLatencyNanos = Math.max(maxLatencyNanos, maxLatencies.get(i));
+        gap = counts.get(i) == 0 ? gap + 1 : 0;
+        longestGap = Math.max(longestGap, gap);
+      }
+      pauses.add(new DynamicBenchmarkReport.SwapPause(
+          TimeUnit.NANOSECONDS.toMillis(swap - startNanos),
+          maxLatencyNanos,
+          longestGap * TIMELINE_BUCKET_NANOS));
+    }
+
+    return new DynamicBenchmarkReport(elapsedNanos, outputs, histogram, pauses);
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exp = 63 - Long.numberOfLeadingZeros(micros);
+    int sub = (int) (micros >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return ((exp - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | sub;
+  }
+
+  /**
+   * 桶内最小延迟(us)
+   * */
+  static long lowerBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exp = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+    return ((long) (SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1)))) << (exp - SUB_BUCKET_BITS);
+  }
+
+  private static final class Timeline {
+
+    private final long startNanos;
+    // 每个桶内的采样行数及最大延迟(ns)
+    private final AtomicLongArray counts;
+    private final AtomicLongArray maxLatencies;
+
+    Timeline(long startNanos, int buckets) {
+      this.startNanos = startNanos;
+      this.counts = new AtomicLongArray(buckets);
+      this.maxLatencies = new AtomicLongArray(buckets);
+    }
+
+    void record(long arrivalNanos, long latencyNanos) {
+      long offset = arrivalNanos - startNanos;
+      if (offset < 0 || offset / TIMELINE_BUCKET_NANOS >= counts.length()) {
+        return;
+      }
+      int index = (int) (offset / TIMELINE_BUCKET_NANOS);
+      counts.incrementAndGet(index);
+      long max;
+      while (latencyNanos > (max = maxLatencies.get(index))) {
+        if (maxLatencies.compareAndSet(index, max, latencyNanos)) {
+          break;
+        }
+      }
+    }
+
+  }
+
+}
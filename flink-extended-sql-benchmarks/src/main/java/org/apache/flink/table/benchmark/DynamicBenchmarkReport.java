@@ -0,0 +1,97 @@
+package org.apache.flink.table.benchmark;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端基准测试结果
+ * */
+public final class DynamicBenchmarkReport {
+
+  private final long elapsedNanos;
+  private final long records;
+  // 延迟直方图(us), 分桶见 DynamicBenchmarkRecorder
+  private final long[] latencyHistogram;
+  private final List<SwapPause> swapPauses;
+
+  DynamicBenchmarkReport(long elapsedNanos, long records, long[] latencyHistogram, List<SwapPause> swapPauses) {
+    this.elapsedNanos = elapsedNanos;
+    this.records = records;
+    this.latencyHistogram = latencyHistogram;
+    this.swapPauses = swapPauses;
+  }
+
+  public double getRecordsPerSecond() {
+    return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * 延迟分位数(us), 取桶下界; 无采样时为 -1
+   * */
+  public long getLatencyMicros(double quantile) {
+    long total = 0;
+    for (long count : latencyHistogram) {
+      total += count;
+    }
+    if (total == 0) {
+      return -1;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * quantile));
+    long seen = 0;
+    for (int i = 0; i < latencyHistogram.length; ++i) {
+      seen += latencyHistogram[i];
+      if (seen >= rank) {
+        return DynamicBenchmarkRecorder.lowerBoundOf(i);
+      }
+    }
+    return DynamicBenchmarkRecorder.lowerBoundOf(latencyHistogram.length - 1);
+  }
+
+  public List<SwapPause> getSwapPauses() {
+    return swapPauses;
+  }
+
+  public void print(PrintStream out) {
+    out.printf("elapsed: %d ms, records: %d, throughput: %.0f records/s%n",
+        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), records, getRecordsPerSecond());
+    out.printf("latency(us): p50 = %d, p99 = %d, p999 = %d, max = %d%n",
+        getLatencyMicros(0.5), getLatencyMicros(0.99), getLatencyMicros(0.999), getLatencyMicros(1.0));
+    for (SwapPause pause : swapPauses) {
+      out.printf("swap at %d ms: max latency = %d us, longest output gap = %d ms%n",
+          pause.offsetMillis,
+          TimeUnit.NANOSECONDS.toMicros(pause.maxLatencyNanos),
+          TimeUnit.NANOSECONDS.toMillis(pause.longestGapNanos));
+    }
+  }
+
+  /**
+   * 规则切换后时间窗口内的最大延迟及最长无输出间隔(按采样行, 精度 10ms)
+   * */
+  public static final class SwapPause {
+
+    private final long offsetMillis;
+    private final long maxLatencyNanos;
+    private final long longestGapNanos;
+
+    SwapPause(long offsetMillis, long maxLatencyNanos, long longestGapNanos) {
+      this.offsetMillis = offsetMillis;
+      this.maxLatencyNanos = maxLatencyNanos;
+      this.longestGapNanos = longestGapNanos;
+    }
+
+    public long getOffsetMillis() {
+      return offsetMillis;
+    }
+
+    public long getMaxLatencyNanos() {
+      return maxLatencyNanos;
+    }
+
+    public long getLongestGapNanos() {
+      return longestGapNanos;
+    }
+
+  }
+
+}
@@ -0,0 +1,168 @@
+package org.apache.flink.table.benchmark;
+
+import static java.lang.String.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.table.api.DynamicFieldProjection;
+import org.apache.flink.table.runtime.types.CRow;
+import org.apache.flink.table.types.RowDataType;
+import org.apache.flink.table.types.SqlSchemaTuple;
+import org.apache.flink.table.types.schema.SqlCalcSchema;
+import org.apache.flink.table.types.schema.SqlScanSchema;
+import org.apache.flink.table.types.schema.SqlSchema;
+import org.apache.flink.types.Row;
+
+/**
+ * 基准测试数据: t1(uid, uname, sex, age, action, timestamp) 行及 code0..3.txt 对应的执行计划
+ * */
+public final class DynamicBenchmarkRows {
+
+  public static final String SCAN_NODE = "DynamicStreamTableSourceScan";
+  public static final String CALC_NODE = "DynamicDataStreamCalc#DynamicStreamTableSourceScan";
+
+  public static final List<String> T1_FIELDS = Collections.unmodifiableList(
+      Arrays.asList("uid", "uname", "sex", "age", "action", "timestamp"));
+
+  public static final RowTypeInfo T1_TYPE = new RowTypeInfo(
+      new TypeInformation<?>[] {Types.LONG, Types.STRING, Types.STRING, Types.INT, Types.STRING, Types.LONG},
+      T1_FIELDS.toArray(new String[0]));
+
+  private static final String[] SEXES = {"男", "女"};
+  private static final String[] ACTIONS = {"click", "view", "buy", "share", "comment"};
+
+  private DynamicBenchmarkRows() {
+
+  }
+
+  /**
+   * 固定种子生成 t1 行, 各次运行数据一致; age 取 [18, 30), 与 code2/3 的过滤条件匹配部分数据
+   * */
+  public static Row[] t1Rows(int size) {
+    Random random = new Random(42L);
+    long timestamp = 1588291200000L;
+    Row[] rows = new Row[size];
+    for (int i = 0; i < size; ++i) {
+      long uid = 1 + random.nextInt(1000000);
+      rows[i] = Row.of(
+          uid,
+          "user_" + uid,
+          SEXES[random.nextInt(SEXES.length)],
+          18 + random.nextInt(12),
+          ACTIONS[random.nextInt(ACTIONS.length)],
+          timestamp + i * 10L);
+    }
+    return rows;
+  }
+
+  public static Row t1Row(long uid, String sex, int age) {
+    return Row.of(uid, "user_" + uid, sex, age, ACTIONS[0], 1588291200000L);
+  }
+
+  public static CRow[] sourceRows(Row[] rows) {
+    CRow[] sourceRows = new CRow[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      sourceRows[i] = new CRow(rows[i], true);
+    }
+    return sourceRows;
+  }
+
+  /**
+   * 扫描节点投影后的 CRow[type, version, data], 即 Calc 的输入
+   * */
+  public static CRow[] scanOutputRows(Row[] rows, int code, long version) {
+    DynamicFieldProjection projection = DynamicFieldProjection.of(
+        DynamicFieldProjection.toFieldIndexes(T1_FIELDS), getSelectFields(code));
+    CRow[] scanRows = new CRow[rows.length];
+    for (int i = 0; i < rows.length; ++i) {
+      scanRows[i] = scanOutputRow(projection.project(rows[i]), version);
+    }
+    return scanRows;
+  }
+
+  public static CRow scanOutputRow(Row projected, long version) {
+    // 投影结果复用, 需拷贝
+    return new CRow(Row.of(RowDataType.DATA, version, Row.copy(projected)), true);
+  }
+
+  public static CRow schemaRow(SqlSchemaTuple schema) {
+    return new CRow(Row.of(RowDataType.SCHEMA, schema.getVersion(), schema), true);
+  }
+
+  public static SqlSchemaTuple schemaTuple(long version, int code) {
+    return new SqlSchemaTuple(version, schemas(code));
+  }
+
+  /**
+   * code0..3.txt 对应的完整执行计划: 节点名 -> 节点 Schema
+   * */
+  public static Map<String, SqlSchema> schemas(int code) {
+    Map<String, SqlSchema> schemas = new HashMap<>();
+    schemas.put(SCAN_NODE, new SqlScanSchema(T1_FIELDS, getSelectFields(code)));
+    schemas.put(CALC_NODE, new SqlCalcSchema(getCodeName(code), getCode(code)));
+    return schemas;
+  }
+
+  public static List<String> getSelectFields(int code) {
+    switch (code) {
+      case 0:
+      case 1:
+        return Arrays.asList("uname", "age", "action", "timestamp", "sex");
+
+      case 2:
+      case 3:
+        return Arrays.asList("uname", "action", "timestamp", "sex", "age");
+
+      default:
+        throw new IllegalArgumentException("Unknown code: " + code);
+    }
+  }
+
+  public static String getCodeName(int code) {
+    switch (code) {
+      case 0:
+        return "DynamicDataStreamCalcRule$36";
+
+      case 1:
+        return "DynamicDataStreamCalcRule$44";
+
+      case 2:
+        return "DynamicDataStreamCalcRule$58";
+
+      case 3:
+        return "DynamicDataStreamCalcRule$69";
+
+      default:
+        throw new IllegalArgumentException("Unknown code: " + code);
+    }
+  }
+
+  public static String getCode(int code) {
+    try (InputStream in = DynamicBenchmarkRows.class.getResourceAsStream(format("/code%d.txt", code))) {
+      if (in == null) {
+        throw new IllegalArgumentException("Unknown code: " + code);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        out.write(buffer, 0, len);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package org.apache.flink.table.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.table.api.rule.DynamicSqlRuleSource;
+import org.apache.flink.table.api.rule.DynamicSqlRuleSourceFactory;
+import org.apache.flink.table.types.schema.SqlSchema;
+
+/**
+ * 规则变更注入: 按固定间隔轮换 code0..3.txt, 并记录每次发出的时间; interval-ms 不大于 0 时不变更
+ * */
+public class DynamicBenchmarkRuleSourceFactory implements DynamicSqlRuleSourceFactory {
+
+  public static final String TYPE = "benchmark-churn";
+
+  public static final String INTERVAL = "interval-ms";
+
+  @Override
+  public String ruleSourceType() {
+    return TYPE;
+  }
+
+  @Override
+  public DynamicSqlRuleSource createRuleSource(Map<String, String> properties) {
+    return new ChurnRuleSource(Long.parseLong(properties.getOrDefault(INTERVAL, "10000")));
+  }
+
+  private static class ChurnRuleSource implements DynamicSqlRuleSource {
+
+    private final long intervalMillis;
+
+    private int nums;
+    private long nextMillis;
+    // 预先读取的执行计划, 下标为代码编号
+    private Map<String, SqlSchema>[] schemas;
+
+    ChurnRuleSource(long intervalMillis) {
+      this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void open() {
+      this.schemas = new Map[4];
+      for (int i = 0; i < schemas.length; ++i) {
+        schemas[i] = DynamicBenchmarkRows.schemas(i);
+      }
+      this.nums = 0;
+      this.nextMillis = System.currentTimeMillis() + intervalMillis;
+    }
+
+    @Override
+    public Map<String, SqlSchema> poll(long timeout, TimeUnit unit) throws Exception {
+      long waitMillis = nextMillis - System.currentTimeMillis();
+      if (intervalMillis <= 0 || waitMillis > unit.toMillis(timeout)) {
+        unit.sleep(timeout);
+        return null;
+      }
+      if (waitMillis > 0) {
+        TimeUnit.MILLISECONDS.sleep(waitMillis);
+      }
+      nextMillis += intervalMillis;
+      DynamicBenchmarkRecorder.get().recordSwap();
+      return schemas[nums++ % schemas.length];
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+  }
+
+}
@@ -0,0 +1,27 @@
+package org.apache.flink.table.benchmark;
+
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.apache.flink.types.Row;
+
+/**
+ * 丢弃输出, 仅计数; 采样行按 timestamp 字段计算端到端延迟
+ * */
+public class DynamicBenchmarkSinkFunction implements SinkFunction<Row> {
+
+  private final int timestampIndex;
+
+  DynamicBenchmarkSinkFunction(int timestampIndex) {
+    this.timestampIndex = timestampIndex;
+  }
+
+  @Override
+  public void invoke(Row value, Context context) throws Exception {
+    DynamicBenchmarkRecorder recorder = DynamicBenchmarkRecorder.get();
+    recorder.recordOutput();
+    Object sendNanos = value.getField(timestampIndex);
+    if (sendNanos != null && (Long) sendNanos >= 0) {
+      recorder.recordLatency((Long) sendNanos);
+    }
+  }
+
+}
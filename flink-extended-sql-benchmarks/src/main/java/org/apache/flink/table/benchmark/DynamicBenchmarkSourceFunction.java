@@ -0,0 +1,85 @@
+package org.apache.flink.table.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.functions.source.RichParallelSourceFunction;
+import org.apache.flink.types.Row;
+
+/**
+ * 限速 t1 行生成器: 字段值取自预先生成的行, 输出行复用, 发送过程不分配对象.
+ *
+ * timestamp 字段: 每 latencySampleInterval 行写入发送时的 {@link DynamicBenchmarkRecorder#clock()} 作为延迟采样,
+ * 其余行为 {@link #NOT_SAMPLED}.
+ * */
+public class DynamicBenchmarkSourceFunction extends RichParallelSourceFunction<Row> {
+
+  public static final Long NOT_SAMPLED = -1L;
+
+  private static final int POOL_SIZE = 1024;
+  private static final int TIMESTAMP_INDEX = DynamicBenchmarkRows.T1_FIELDS.indexOf("timestamp");
+  // 每次持有 Checkpoint 锁发送的最大行数
+  private static final int EMIT_BATCH = 64;
+
+  // 单个子任务每秒发送行数, 不大于 0 时不限速
+  private final long recordsPerSecond;
+  private final int latencySampleInterval;
+
+  private transient Row[] pool;
+  private transient volatile boolean running;
+
+  public DynamicBenchmarkSourceFunction(long recordsPerSecond, int latencySampleInterval) {
+    if (latencySampleInterval <= 0) {
+      throw new IllegalArgumentException("Latency sample interval should be positive, but " + latencySampleInterval);
+    }
+    this.recordsPerSecond = recordsPerSecond;
+    this.latencySampleInterval = latencySampleInterval;
+  }
+
+  @Override
+  public void open(Configuration parameters) throws Exception {
+    this.pool = DynamicBenchmarkRows.t1Rows(POOL_SIZE);
+    this.running = true;
+  }
+
+  @Override
+  public void run(SourceContext<Row> ctx) throws Exception {
+    Row out = new Row(DynamicBenchmarkRows.T1_FIELDS.size());
+    long startNanos = System.nanoTime();
+    long emitted = 0;
+
+    while (running) {
+      long quota = EMIT_BATCH;
+      if (recordsPerSecond > 0) {
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        long due = elapsedMicros * recordsPerSecond / 1000000L;
+        quota = Math.min(EMIT_BATCH, due - emitted);
+        if (quota <= 0) {
+          LockSupport.parkNanos(100_000L);
+          continue;
+        }
+      }
+
+      synchronized (ctx.getCheckpointLock()) {
+        for (long i = 0; i < quota; ++i) {
+          Row source = pool[(int) (emitted & (POOL_SIZE - 1))];
+          for (int field = 0; field < TIMESTAMP_INDEX; ++field) {
+            out.setField(field, source.getField(field));
+          }
+          for (int field = TIMESTAMP_INDEX + 1; field < out.getArity(); ++field) {
+            out.setField(field, source.getField(field));
+          }
+          out.setField(TIMESTAMP_INDEX, emitted % latencySampleInterval == 0 ? (Long) DynamicBenchmarkRecorder.clock() : NOT_SAMPLED);
+          ctx.collect(out);
+          emitted++;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void cancel() {
+    this.running = false;
+  }
+
+}
@@ -0,0 +1,65 @@
+package org.apache.flink.table.benchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.table.DynamicDataTypeConverter;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.factories.TableSinkFactory;
+import org.apache.flink.table.factories.TableSourceFactory;
+import org.apache.flink.table.sinks.TableSink;
+import org.apache.flink.table.sources.TableSource;
+import org.apache.flink.types.Row;
+
+/**
+ * 基准测试输入输出表: 限速 t1 行生成器及丢弃输出的计数 Sink
+ * */
+public class DynamicBenchmarkTableFactory implements TableSourceFactory<Row>, TableSinkFactory, DynamicDataTypeConverter {
+
+  // 单个子任务每秒发送行数, 不大于 0 时不限速
+  public static final String SOURCE_RATE = "source.rate";
+  // 每隔多少行采样一次延迟
+  public static final String LATENCY_SAMPLE_INTERVAL = "latency.sample-interval";
+
+  private static final String TIMESTAMP_FIELD = "timestamp";
+
+  @Override
+  public TableSource<Row> createTableSource(TableSourceFactory.Context context) {
+    Map<String, String> properties = context.getTable().toProperties();
+    Tuple2<String[], TypeInformation<?>[]> nameAndTypes = toNameAndTypes(properties);
+    if (!Arrays.asList(nameAndTypes.f0).equals(DynamicBenchmarkRows.T1_FIELDS)) {
+      throw new TableException("Benchmark source only supports t1 fields " + DynamicBenchmarkRows.T1_FIELDS
+          + ", but " + Arrays.toString(nameAndTypes.f0));
+    }
+
+    DynamicBenchmarkSourceFunction sourceFunction = new DynamicBenchmarkSourceFunction(
+        Long.parseLong(properties.getOrDefault(SOURCE_RATE, "0")),
+        Integer.parseInt(properties.getOrDefault(LATENCY_SAMPLE_INTERVAL, "100")));
+    return new DynamicBenchmarkTableSource(sourceFunction, properties);
+  }
+
+  @Override
+  public TableSink<?> createTableSink(TableSinkFactory.Context context) {
+    Map<String, String> properties = context.getTable().toProperties();
+    Tuple2<String[], TypeInformation<?>[]> nameAndTypes = toNameAndTypes(properties);
+    int timestampIndex = Arrays.asList(nameAndTypes.f0).indexOf(TIMESTAMP_FIELD);
+    if (timestampIndex < 0) {
+      throw new TableException("Benchmark sink requires field: " + TIMESTAMP_FIELD);
+    }
+    return new DynamicBenchmarkTableSink(nameAndTypes.f0, nameAndTypes.f1, timestampIndex);
+  }
+
+  @Override
+  public Map<String, String> requiredContext() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public List<String> supportedProperties() {
+    return Arrays.asList("connector.type", SOURCE_RATE, LATENCY_SAMPLE_INTERVAL);
+  }
+
+}
@@ -0,0 +1,48 @@
+package org.apache.flink.table.benchmark;
+
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.datastream.DataStreamSink;
+import org.apache.flink.table.sinks.AppendStreamTableSink;
+import org.apache.flink.table.sinks.TableSink;
+import org.apache.flink.types.Row;
+
+public class DynamicBenchmarkTableSink implements AppendStreamTableSink<Row> {
+
+  private final String[] fieldNames;
+  private final TypeInformation<?>[] fieldTypes;
+  private final int timestampIndex;
+
+  DynamicBenchmarkTableSink(String[] fieldNames, TypeInformation<?>[] fieldTypes, int timestampIndex) {
+    this.fieldNames = fieldNames;
+    this.fieldTypes = fieldTypes;
+    this.timestampIndex = timestampIndex;
+  }
+
+  @Override
+  public String[] getFieldNames() {
+    return fieldNames;
+  }
+
+  @Override
+  public TypeInformation<?>[] getFieldTypes() {
+    return fieldTypes;
+  }
+
+  @Override
+  public TypeInformation<Row> getOutputType() {
+    return new RowTypeInfo(fieldTypes, fieldNames);
+  }
+
+  @Override
+  public DataStreamSink<?> consumeDataStream(DataStream<Row> dataStream) {
+    return dataStream.addSink(new DynamicBenchmarkSinkFunction(timestampIndex));
+  }
+
+  @Override
+  public TableSink<Row> configure(String[] fieldNames, TypeInformation<?>[] fieldTypes) {
+    return null;
+  }
+
+}
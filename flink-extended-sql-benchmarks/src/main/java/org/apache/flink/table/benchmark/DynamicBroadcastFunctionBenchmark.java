@@ -0,0 +1,78 @@
+package org.apache.flink.table.benchmark;
+
+import static org.apache.flink.table.benchmark.DynamicBenchmarkRows.SCAN_NODE;
+import static org.apache.flink.table.benchmark.DynamicBenchmarkRows.T1_FIELDS;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.streaming.api.operators.co.CoBroadcastWithNonKeyedOperator;
+import org.apache.flink.streaming.util.TwoInputStreamOperatorTestHarness;
+import org.apache.flink.table.api.DynamicBroadcastFunction;
+import org.apache.flink.table.api.DynamicStateDescriptors;
+import org.apache.flink.table.runtime.types.CRow;
+import org.apache.flink.table.types.SqlSchemaTuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 扫描节点字段投影: {@link DynamicBroadcastFunction#processElement}
+ *
+ * TestHarness 仅用于初始化状态及 RuntimeContext, 测量时直接调用函数, 不经过算子输出队列.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DynamicBroadcastFunctionBenchmark {
+
+  private static final int ROWS = 1024;
+
+  @Param({"0", "2"})
+  public int code;
+
+  private TwoInputStreamOperatorTestHarness<CRow, SqlSchemaTuple, CRow> harness;
+  private DynamicBroadcastFunction function;
+  private CRow[] rows;
+
+  private BlackholeCollector<CRow> collector;
+
+  @Setup
+  public void setup(Blackhole blackhole) throws Exception {
+    function = new DynamicBroadcastFunction(SCAN_NODE, T1_FIELDS, DynamicBenchmarkRows.getSelectFields(code));
+    harness = new TwoInputStreamOperatorTestHarness<>(new CoBroadcastWithNonKeyedOperator<>(
+        function, Collections.<MapStateDescriptor<?, ?>>singletonList(DynamicStateDescriptors.scanRuleState())));
+    harness.open();
+
+    rows = DynamicBenchmarkRows.sourceRows(DynamicBenchmarkRows.t1Rows(ROWS));
+    collector = new BlackholeCollector<>(blackhole);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    harness.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void processElement() throws Exception {
+    for (CRow row : rows) {
+      function.processElement(row, null, collector);
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+package org.apache.flink.table.benchmark;
+
+import static org.apache.flink.table.benchmark.DynamicBenchmarkRows.CALC_NODE;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.streaming.api.operators.ProcessOperator;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.table.runtime.DynamicCRowProcessRunner;
+import org.apache.flink.table.runtime.types.CRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Calc 生成代码执行: {@link DynamicCRowProcessRunner#processElement}, 分别使用 code0..3.txt
+ *
+ * code0/1 仅按 sex 过滤, code2/3 按 sex 及 age 过滤, 输出比例不同.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DynamicCRowProcessRunnerBenchmark {
+
+  private static final int ROWS = 1024;
+
+  @Param({"0", "1", "2", "3"})
+  public int code;
+
+  private OneInputStreamOperatorTestHarness<CRow, CRow> harness;
+  private DynamicCRowProcessRunner runner;
+  private CRow[] rows;
+
+  private BlackholeCollector<CRow> collector;
+
+  @Setup
+  public void setup(Blackhole blackhole) throws Exception {
+    runner = new DynamicCRowProcessRunner(
+        CALC_NODE, DynamicBenchmarkRows.getCodeName(code), DynamicBenchmarkRows.getCode(code));
+    harness = new OneInputStreamOperatorTestHarness<>(new ProcessOperator<>(runner));
+    harness.open();
+
+    rows = DynamicBenchmarkRows.scanOutputRows(DynamicBenchmarkRows.t1Rows(ROWS), code, 1L);
+    collector = new BlackholeCollector<>(blackhole);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    harness.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void processElement() throws Exception {
+    for (CRow row : rows) {
+      runner.processElement(row, null, collector);
+    }
+  }
+
+}
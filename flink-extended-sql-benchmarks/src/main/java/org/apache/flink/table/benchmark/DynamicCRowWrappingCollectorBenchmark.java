@@ -0,0 +1,58 @@
+package org.apache.flink.table.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.table.runtime.DynamicCRowWrappingCollector;
+import org.apache.flink.table.runtime.types.CRow;
+import org.apache.flink.table.types.RowDataType;
+import org.apache.flink.types.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Calc 输出包装: {@link DynamicCRowWrappingCollector#collect(Row)}, 与 Runner 相同先设置类型及版本
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DynamicCRowWrappingCollectorBenchmark {
+
+  private static final int ROWS = 1024;
+
+  private DynamicCRowWrappingCollector wrapper;
+  private Row[] rows;
+  private Long version;
+
+  @Setup
+  public void setup(Blackhole blackhole) {
+    wrapper = new DynamicCRowWrappingCollector();
+    wrapper.out_$eq(new BlackholeCollector<CRow>(blackhole));
+    wrapper.setChange(true);
+
+    rows = DynamicBenchmarkRows.t1Rows(ROWS);
+    version = 1L;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void collect() {
+    for (Row row : rows) {
+      wrapper.setRowType(RowDataType.DATA);
+      wrapper.setVersion(version);
+      wrapper.collect(row);
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+package org.apache.flink.table.benchmark;
+
+import static org.apache.flink.table.benchmark.DynamicBenchmarkRows.CALC_NODE;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.streaming.api.operators.ProcessOperator;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.table.api.DynamicFieldProjection;
+import org.apache.flink.table.runtime.DynamicCRowProcessRunner;
+import org.apache.flink.table.runtime.types.CRow;
+import org.apache.flink.table.types.SqlSchemaTuple;
+import org.apache.flink.table.types.schema.SqlCalcSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 执行计划切换: 从 {@link DynamicCRowProcessRunner} 收到新 Calc 代码到新函数处理第一条数据的耗时.
+ *
+ * code2 / code3 交替切换, 探测行仅能通过目标代码的过滤条件, 出现输出即切换完成.
+ * 生成类按代码缓存, 预热后测量的是提交, 实例化及 open 新函数的开销, 不含 Janino 编译.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DynamicSchemaSwapBenchmark {
+
+  private static final long SWAP_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private OneInputStreamOperatorTestHarness<CRow, CRow> harness;
+  private DynamicCRowProcessRunner runner;
+  // 探测行及 Calc 代码, 下标为代码编号
+  private CRow[] probes;
+  private SqlCalcSchema[] calcs;
+
+  private BlackholeCollector<CRow> collector;
+
+  private long version;
+  private int code;
+
+  @Setup
+  public void setup(Blackhole blackhole) throws Exception {
+    code = 2;
+    version = 1L;
+    runner = new DynamicCRowProcessRunner(
+        CALC_NODE, DynamicBenchmarkRows.getCodeName(code), DynamicBenchmarkRows.getCode(code));
+    harness = new OneInputStreamOperatorTestHarness<>(new ProcessOperator<>(runner));
+    harness.open();
+
+    DynamicFieldProjection projection = DynamicFieldProjection.of(
+        DynamicFieldProjection.toFieldIndexes(DynamicBenchmarkRows.T1_FIELDS), DynamicBenchmarkRows.getSelectFields(2));
+    probes = new CRow[4];
+    probes[2] = DynamicBenchmarkRows.scanOutputRow(projection.project(DynamicBenchmarkRows.t1Row(1L, "男", 22)), version);
+    probes[3] = DynamicBenchmarkRows.scanOutputRow(projection.project(DynamicBenchmarkRows.t1Row(2L, "女", 25)), version);
+
+    calcs = new SqlCalcSchema[4];
+    calcs[2] = new SqlCalcSchema(DynamicBenchmarkRows.getCodeName(2), DynamicBenchmarkRows.getCode(2));
+    calcs[3] = new SqlCalcSchema(DynamicBenchmarkRows.getCodeName(3), DynamicBenchmarkRows.getCode(3));
+
+    collector = new BlackholeCollector<>(blackhole);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    harness.close();
+  }
+
+  @Benchmark
+  public void swap() throws Exception {
+    code = code == 2 ? 3 : 2;
+    SqlSchemaTuple schema = new SqlSchemaTuple(++version, Collections.singletonMap(CALC_NODE, calcs[code]));
+    runner.processElement(DynamicBenchmarkRows.schemaRow(schema), null, collector);
+
+    CRow probe = probes[code];
+    long expected = collector.getCount() + 1;
+    long deadline = System.nanoTime() + SWAP_TIMEOUT_NANOS;
+    while (collector.getCount() < expected) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("Schema version " + version + " not swapped in time.");
+      }
+      runner.processElement(probe, null, collector);
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+package org.apache.flink.table.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.apache.calcite.tools.RuleSet;
+import org.apache.calcite.tools.RuleSets;
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.core.execution.JobClient;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.table.api.DynamicSqlOptions;
+import org.apache.flink.table.api.EnvironmentSettings;
+import org.apache.flink.table.api.TableConfig;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.api.bridge.java.StreamTableEnvironment;
+import org.apache.flink.table.calcite.CalciteConfig;
+import org.apache.flink.table.calcite.CalciteConfigBuilder;
+import org.apache.flink.table.catalog.GenericInMemoryCatalog;
+import org.apache.flink.table.factories.TableFactory;
+import org.apache.flink.table.plan.rules.datastream.DynamicDataStreamCalcRule;
+import org.apache.flink.table.plan.rules.datastream.DynamicDataStreamScanRule;
+import org.apache.flink.table.plan.rules.datastream.DynamicDataStreamSinkRule;
+import org.apache.flink.table.plan.rules.datastream.DynamicStreamTableSourceScanRule;
+
+/**
+ * 端到端基准测试: 在本地 MiniCluster 运行 t1 -> t2 动态 SQL 作业, 按固定间隔注入规则变更,
+ * 统计吞吐, 端到端延迟分位数及每次规则切换前后的停顿.
+ *
+ * 参数:
+ *   --parallelism            作业并发, 默认 2
+ *   --rate                   单个数据源子任务每秒发送行数, 0 不限速, 默认 0
+ *   --latency-sample         每隔多少行采样一次延迟, 默认 100
+ *   --rule-interval-ms       规则变更间隔, 0 不变更, 默认 5000
+ *   --warmup-s               预热时长, 默认 10
+ *   --duration-s             统计时长, 默认 60
+ *   --swap-window-ms         每次切换后计算停顿的时间窗口, 默认 1000
+ *   --fusion                 是否融合 Scan/Calc/Sink 算子, 默认 true
+ *   --mini-batch             是否开启 Calc 批量处理, 默认 false
+ * */
+public class DynamicSqlThroughputBenchmark {
+
+  private static final String CATALOG = "benchmark";
+  private static final String DATABASE = "stream";
+
+  public static void main(String[] args) throws Exception {
+    ParameterTool params = ParameterTool.fromArgs(args);
+    int parallelism = params.getInt("parallelism", 2);
+    long warmupMillis = TimeUnit.SECONDS.toMillis(params.getLong("warmup-s", 10));
+    long durationMillis = TimeUnit.SECONDS.toMillis(params.getLong("duration-s", 60));
+    long swapWindowMillis = params.getLong("swap-window-ms", 1000);
+
+    StreamExecutionEnvironment env = StreamExecutionEnvironment.createLocalEnvironment(parallelism, new Configuration());
+
+    EnvironmentSettings settings = EnvironmentSettings.newInstance()
+        .inStreamingMode()
+        .useOldPlanner()
+        .build();
+    StreamTableEnvironment tableEnv = StreamTableEnvironment.create(env, settings);
+    TableConfig tableConfig = tableEnv.getConfig();
+
+    // 物理执行计划
+    RuleSet dynamicStreamRuleSet = RuleSets.ofList(
+        DynamicDataStreamScanRule.INSTANCE(),
+        DynamicStreamTableSourceScanRule.INSTANCE(),
+        DynamicDataStreamCalcRule.INSTANCE(),
+        DynamicDataStreamSinkRule.INSTANCE()
+    );
+    CalciteConfigBuilder configBuilder = CalciteConfig.createBuilder();
+    configBuilder.replacePhysicalOptRuleSet(dynamicStreamRuleSet);
+    tableConfig.setPlannerConfig(configBuilder.build());
+
+    Configuration configuration = tableConfig.getConfiguration();
+    configuration.setBoolean(DynamicSqlOptions.OPERATOR_FUSION_ENABLED, params.getBoolean("fusion", true));
+    configuration.setBoolean(DynamicSqlOptions.MINI_BATCH_ENABLED, params.getBoolean("mini-batch", false));
+    // 规则变更
+    configuration.setString(DynamicSqlOptions.RULE_SOURCE_TYPE, DynamicBenchmarkRuleSourceFactory.TYPE);
+    configuration.setString(
+        DynamicSqlOptions.RULE_SOURCE_PREFIX + DynamicBenchmarkRuleSourceFactory.INTERVAL,
+        params.get("rule-interval-ms", "5000"));
+
+    tableEnv.registerCatalog(CATALOG, new GenericInMemoryCatalog(CATALOG, DATABASE) {
+      @Override
+      public Optional<TableFactory> getTableFactory() {
+        return Optional.of(new DynamicBenchmarkTableFactory());
+      }
+    });
+    tableEnv.useCatalog(CATALOG);
+    tableEnv.useDatabase(DATABASE);
+
+    // 输入表
+    tableEnv.executeSql("CREATE TABLE t1 (\n"
+        + "   uid bigint, \n"
+        + "   uname varchar, \n"
+        + "   sex varchar, \n"
+        + "   age int, \n"
+        + "   action varchar, \n"
+        + "   `timestamp` bigint \n"
+        + ") WITH ( \n"
+        + "   'connector.type' = 'BENCHMARK', \n"
+        + "   '" + DynamicBenchmarkTableFactory.SOURCE_RATE + "' = '" + params.getLong("rate", 0) + "', \n"
+        + "   '" + DynamicBenchmarkTableFactory.LATENCY_SAMPLE_INTERVAL + "' = '" + params.getInt("latency-sample", 100) + "' \n"
+        + ")");
+
+    // 输出表
+    tableEnv.executeSql("CREATE TABLE t2 (\n"
+        + "   uname varchar, \n"
+        + "   sex varchar, \n"
+        + "   age int, \n"
+        + "   action varchar, \n"
+        + "   `timestamp` bigint \n"
+        + ") WITH ( \n"
+        + "   'connector.type' = 'BENCHMARK' \n"
+        + ")");
+
+    String sql = "INSERT INTO t2 \n"
+               + "SELECT \n"
+               + "   uname, sex, age, action, `timestamp` \n"
+               + "FROM \n"
+               + "   t1 \n"
+               + "WHERE \n"
+               + "   sex = '男'";
+
+    JobClient jobClient = tableEnv.executeSql(sql).getJobClient()
+        .orElseThrow(() -> new TableException("Benchmark job not submitted."));
+    DynamicBenchmarkRecorder recorder = DynamicBenchmarkRecorder.get();
+    try {
+      TimeUnit.MILLISECONDS.sleep(warmupMillis);
+      recorder.start(durationMillis);
+      TimeUnit.MILLISECONDS.sleep(durationMillis);
+      recorder.stop(swapWindowMillis).print(System.out);
+    } finally {
+      jobClient.cancel().get();
+    }
+  }
+
+}
@@ -2,20 +2,21 @@ package org.apache.flink.table.api;
 
 import static org.apache.commons.collections.CollectionUtils.isNotEmpty;
 
-import org.apache.flink.table.util.JsonUtils;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import org.apache.flink.api.common.state.BroadcastState;
+import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.MapStateDescriptor;
-import org.apache.flink.api.common.state.ReadOnlyBroadcastState;
-import org.apache.flink.api.common.typeinfo.Types;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.state.FunctionInitializationContext;
+import org.apache.flink.runtime.state.FunctionSnapshotContext;
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
 import org.apache.flink.streaming.api.functions.co.BroadcastProcessFunction;
 import org.apache.flink.table.runtime.types.CRow;
+import org.apache.flink.table.types.DynamicRowTypeInfo;
 import org.apache.flink.table.types.RowDataType;
 import org.apache.flink.table.types.SqlSchemaTuple;
 import org.apache.flink.table.types.schema.SqlScanSchema;
@@ -23,18 +24,24 @@ import org.apache.flink.types.Row;
 import org.apache.flink.util.Collector;
 import org.apache.flink.util.Preconditions;
 
-public class DynamicBroadcastFunction extends BroadcastProcessFunction<CRow, SqlSchemaTuple, CRow> {
+public class DynamicBroadcastFunction extends BroadcastProcessFunction<CRow, SqlSchemaTuple, CRow>
+    implements CheckpointedFunction {
 
-  // CRow[type, data]
+  // CRow[type, version, data]
   private String streamNodePath;
   private transient MapStateDescriptor<String, Tuple2<Map<String, Integer>, List<String>>> stateDesc;
 
   private Map<String, Integer> sourceFieldNameToIndexes;
   private List<String> selectFieldNames;
 
-  private transient Row projectRow;
+  // 字段投影, 执行计划变更时整体替换
+  private transient DynamicFieldProjection projection;
+  // 当前执行计划版本
+  private transient Long version;
+  private transient ListState<Long> versionState;
   private transient Row outRow;
   private transient CRow outCRow;
+  private transient DynamicOperatorMetrics metrics;
 
   public DynamicBroadcastFunction(
       String streamNodePath,
@@ -43,82 +50,90 @@ public class DynamicBroadcastFunction extends BroadcastProcessFunction<CRow, Sql
     this.streamNodePath = Objects.requireNonNull(streamNodePath);
     Preconditions.checkArgument(isNotEmpty(sourceFieldNames));
     Preconditions.checkArgument(isNotEmpty(selectFieldNames));
-    sourceFieldNameToIndexes = new HashMap<>();
-    int index = 0;
-    for (String fieldName : sourceFieldNames) {
-      sourceFieldNameToIndexes.put(fieldName, index++);
-    }
+    sourceFieldNameToIndexes = DynamicFieldProjection.toFieldIndexes(sourceFieldNames);
     this.selectFieldNames = new ArrayList<>(selectFieldNames);
   }
 
+  @Override
+  public void initializeState(FunctionInitializationContext context) throws Exception {
+    stateDesc = DynamicStateDescriptors.scanRuleState();
+    versionState = context.getOperatorStateStore().getUnionListState(DynamicStateDescriptors.schemaVersionState());
+
+    version = 0L;
+    projection = DynamicFieldProjection.of(sourceFieldNameToIndexes, selectFieldNames);
+    if (!context.isRestored()) {
+      return;
+    }
+
+    // 作业恢复: 直接使用最近一次生效的规则, 不回退到编译期执行计划
+    for (Long restored : versionState.get()) {
+      version = Math.max(version, restored);
+    }
+    BroadcastState<String, Tuple2<Map<String, Integer>, List<String>>> broadcastState =
+        context.getOperatorStateStore().getBroadcastState(stateDesc);
+    Tuple2<Map<String, Integer>, List<String>> rules = broadcastState.get(streamNodePath);
+    if (rules != null) {
+      projection = DynamicFieldProjection.of(rules.f0, rules.f1);
+    }
+  }
+
+  @Override
+  public void snapshotState(FunctionSnapshotContext context) throws Exception {
+    versionState.clear();
+    versionState.add(version);
+  }
+
   @Override
   public void open(Configuration parameters) throws Exception {
-    stateDesc = new MapStateDescriptor<>(
-        "BroadcastState",
-        Types.STRING,
-        Types.TUPLE(
-            Types.MAP(Types.STRING, Types.INT),
-            Types.LIST(Types.STRING)
-        )
-    );
-    projectRow = new Row(selectFieldNames.size());
-
-    outRow = new Row(2);
+    outRow = new Row(DynamicRowTypeInfo.ARITY);
     outCRow = new CRow(outRow, true);
+    metrics = new DynamicOperatorMetrics(getRuntimeContext().getMetricGroup(), version);
   }
 
   @Override
   public void processElement(CRow value, ReadOnlyContext ctx, Collector<CRow> out)
       throws Exception {
-    ReadOnlyBroadcastState<String, Tuple2<Map<String, Integer>, List<String>>> state = ctx.getBroadcastState(stateDesc);
-    Map<String, Integer> sourceFieldToIndexes;
-    List<String> selectFields;
-    Tuple2<Map<String, Integer>, List<String>> rules;
-    if (state == null || (rules = state.get(streamNodePath)) == null) {
-      sourceFieldToIndexes = sourceFieldNameToIndexes;
-      selectFields = selectFieldNames;
-    } else {
-      sourceFieldToIndexes = rules.f0;
-      selectFields = rules.f1;
-    }
-    buildOutRow(value.row(), sourceFieldToIndexes, selectFields);
+    outRow.setField(DynamicRowTypeInfo.TYPE_INDEX, RowDataType.DATA);
+    outRow.setField(DynamicRowTypeInfo.VERSION_INDEX, version);
+    outRow.setField(DynamicRowTypeInfo.DATA_INDEX, projection.project(value.row()));
+    metrics.getRecordsIn().inc();
+    metrics.sampleSerialization(outRow);
     out.collect(outCRow);
+    metrics.getRecordsOut().inc();
   }
 
   @Override
   public void processBroadcastElement(SqlSchemaTuple schemaTuple, Context ctx, Collector<CRow> out)
       throws Exception {
-    BroadcastState<String, Tuple2<Map<String, Integer>, List<String>>> broadcastState = ctx.getBroadcastState(stateDesc);
-
-    SqlScanSchema scan = schemaTuple.getStreamNodeSchema(streamNodePath, SqlScanSchema.class);
-    Preconditions.checkState(scan != null);
-    Preconditions.checkArgument(isNotEmpty(scan.getSourceFieldNames()));
-    Preconditions.checkArgument(isNotEmpty(scan.getSelectFieldNames()));
-    Map<String, Integer> sourceFieldNameToIndexes = new HashMap<>();
-    int index = 0;
-    for (String fieldName : scan.getSourceFieldNames()) {
-      sourceFieldNameToIndexes.put(fieldName, index++);
+    // 忽略已处理过的版本
+    if (schemaTuple.getVersion() <= version) {
+      return;
     }
-    broadcastState.put(streamNodePath, Tuple2.of(sourceFieldNameToIndexes, scan.getSelectFieldNames()));
-    projectRow = new Row(scan.getSelectFieldNames().size());
 
-    // 向下发送数据
-    outRow.setField(0, RowDataType.SCHEMA.name());
-    outRow.setField(1, JsonUtils.toJson(schemaTuple));
-    out.collect(outCRow);
-  }
+    if (schemaTuple.containsStreamNode(streamNodePath)) {
+      BroadcastState<String, Tuple2<Map<String, Integer>, List<String>>> broadcastState = ctx.getBroadcastState(stateDesc);
+
+      SqlScanSchema scan = schemaTuple.getStreamNodeSchema(streamNodePath, SqlScanSchema.class);
+      Preconditions.checkArgument(isNotEmpty(scan.getSourceFieldNames()));
+      Preconditions.checkArgument(isNotEmpty(scan.getSelectFieldNames()));
+      Map<String, Integer> sourceFieldNameToIndexes = DynamicFieldProjection.toFieldIndexes(scan.getSourceFieldNames());
+      // 先解析投影, 字段缺失时不修改状态
+      DynamicFieldProjection newProjection = DynamicFieldProjection.of(sourceFieldNameToIndexes, scan.getSelectFieldNames());
+      broadcastState.put(streamNodePath, Tuple2.of(sourceFieldNameToIndexes, scan.getSelectFieldNames()));
+      projection = newProjection;
+      metrics.swapped(schemaTuple.getVersion());
+    }
+    version = schemaTuple.getVersion();
 
-  private void buildOutRow(Row in, Map<String, Integer> sourceFieldToIndexes, List<String> selectFields) {
-    int selectFieldPos = 0;
-    for (String selectField : selectFields) {
-      Integer index = sourceFieldToIndexes.get(selectField);
-      if (index == null) {
-        throw new RuntimeException("stream source can't find field: " + selectField);
-      }
-      projectRow.setField(selectFieldPos++, in.getField(index));
+    // 向下发送其余节点的变更
+    SqlSchemaTuple downstream = schemaTuple.without(streamNodePath);
+    if (downstream.isEmpty()) {
+      return;
     }
-    outRow.setField(0, RowDataType.DATA.name());
-    outRow.setField(1, JsonUtils.toJson(projectRow));
+    outRow.setField(DynamicRowTypeInfo.TYPE_INDEX, RowDataType.SCHEMA);
+    outRow.setField(DynamicRowTypeInfo.VERSION_INDEX, version);
+    outRow.setField(DynamicRowTypeInfo.DATA_INDEX, downstream);
+    out.collect(outCRow);
   }
 
 }
@@ -0,0 +1,53 @@
+package org.apache.flink.table.api;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.flink.types.Row;
+
+/**
+ * 预先解析的字段投影: 输出第 i 个字段取自输入的 indexes[i] 字段
+ * */
+public final class DynamicFieldProjection {
+
+  private final int[] indexes;
+  private final Row projectRow;
+
+  private DynamicFieldProjection(int[] indexes) {
+    this.indexes = indexes;
+    this.projectRow = new Row(indexes.length);
+  }
+
+  /**
+   * 返回复用的投影结果
+   * */
+  public Row project(Row in) {
+    for (int i = 0; i < indexes.length; ++i) {
+      projectRow.setField(i, in.getField(indexes[i]));
+    }
+    return projectRow;
+  }
+
+  public static Map<String, Integer> toFieldIndexes(List<String> fieldNames) {
+    Map<String, Integer> fieldNameToIndexes = new HashMap<>();
+    int index = 0;
+    for (String fieldName : fieldNames) {
+      fieldNameToIndexes.put(fieldName, index++);
+    }
+    return fieldNameToIndexes;
+  }
+
+  public static DynamicFieldProjection of(Map<String, Integer> sourceFieldToIndexes, List<String> selectFields) {
+    int[] indexes = new int[selectFields.size()];
+    int selectFieldPos = 0;
+    for (String selectField : selectFields) {
+      Integer index = sourceFieldToIndexes.get(selectField);
+      if (index == null) {
+        throw new RuntimeException("stream source can't find field: " + selectField);
+      }
+      indexes[selectFieldPos++] = index;
+    }
+    return new DynamicFieldProjection(indexes);
+  }
+
+}
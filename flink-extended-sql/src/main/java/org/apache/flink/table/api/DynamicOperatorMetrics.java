@@ -0,0 +1,143 @@
+package org.apache.flink.table.api;
+
+import java.io.IOException;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.table.types.DynamicRowSerializer;
+import org.apache.flink.types.Row;
+
+/**
+ * 动态算子热路径指标, 注册在算子指标组的 dynamic 子组下:
+ *
+ * <pre>
+ *   recordsIn / recordsOut         数据行输入输出数(不含执行计划行)
+ *   recordsInPerSecond / recordsOutPerSecond  数据行输入输出速率, 两者之差即过滤掉的数据行速率
+ *   serializedBytes / serializeNanos  DynamicRow 序列化字节数及耗时, 按采样估算
+ *   schemaVersion                  当前生效的执行计划版本, 各子任务不一致说明存在版本偏差
+ *   timeSinceLastSwapMs            距上次执行计划生效的时间
+ *   versionSkew                    已收到的最新版本与生效版本之差, 大于 0 表示新执行计划尚未生效
+ *   staleRecords                   版本早于生效版本的数据行数(来自尚未切换的上游子任务)
+ *   alignedRecords / alignmentWaitMs  等待新函数生效而缓冲的数据行数及最近一次缓冲时长
+ * </pre>
+ *
+ * 计数器为非线程安全的 long 累加, 仅在 Task 线程更新; 序列化每 1024 行采样一次, 写入复用的缓冲区.
+ * */
+public final class DynamicOperatorMetrics {
+
+  public static final String GROUP = "dynamic";
+
+  private static final int SERIALIZATION_SAMPLE_INTERVAL = 1024;
+
+  private final MetricGroup group;
+
+  private final Counter recordsIn;
+  private final Counter recordsOut;
+  private final Counter serializedBytes;
+  private final Counter serializeNanos;
+  private final Counter staleRecords;
+  private final Counter alignedRecords;
+
+  private final DataOutputSerializer serializeBuffer = new DataOutputSerializer(256);
+  private int serializationTick;
+
+  private volatile long schemaVersion;
+  private volatile long latestVersion;
+  private volatile long lastSwapMillis;
+  private volatile long alignmentWaitMillis;
+
+  public DynamicOperatorMetrics(MetricGroup operatorGroup, long schemaVersion) {
+    this.group = operatorGroup.addGroup(GROUP);
+    this.schemaVersion = schemaVersion;
+    this.latestVersion = schemaVersion;
+    this.lastSwapMillis = System.currentTimeMillis();
+
+    this.recordsIn = group.counter("recordsIn");
+    this.recordsOut = group.counter("recordsOut");
+    this.serializedBytes = group.counter("serializedBytes");
+    this.serializeNanos = group.counter("serializeNanos");
+    this.staleRecords = group.counter("staleRecords");
+    this.alignedRecords = group.counter("alignedRecords");
+
+    group.meter("recordsInPerSecond", new MeterView(recordsIn));
+    group.meter("recordsOutPerSecond", new MeterView(recordsOut));
+    group.gauge("schemaVersion", (Gauge<Long>) () -> this.schemaVersion);
+    group.gauge("timeSinceLastSwapMs", (Gauge<Long>) () -> System.currentTimeMillis() - lastSwapMillis);
+    group.gauge("versionSkew", (Gauge<Long>) () -> Math.max(0L, latestVersion - this.schemaVersion));
+    group.gauge("alignmentWaitMs", (Gauge<Long>) () -> alignmentWaitMillis);
+  }
+
+  /**
+   * 用于注册算子特有的指标(如编译次数)
+   * */
+  public MetricGroup getGroup() {
+    return group;
+  }
+
+  public Counter getRecordsIn() {
+    return recordsIn;
+  }
+
+  public Counter getRecordsOut() {
+    return recordsOut;
+  }
+
+  public Counter getStaleRecords() {
+    return staleRecords;
+  }
+
+  public Counter getAlignedRecords() {
+    return alignedRecords;
+  }
+
+  public long getSchemaVersion() {
+    return schemaVersion;
+  }
+
+  /**
+   * 收到新执行计划, 尚未生效
+   * */
+  public void announced(long version) {
+    if (version > latestVersion) {
+      latestVersion = version;
+    }
+  }
+
+  /**
+   * 新执行计划生效
+   * */
+  public void swapped(long version) {
+    announced(version);
+    schemaVersion = version;
+    lastSwapMillis = System.currentTimeMillis();
+  }
+
+  public void aligned(long waitMillis) {
+    alignmentWaitMillis = waitMillis;
+  }
+
+  /**
+   * 按采样序列化 DynamicRow[DATA, version, data], 估算算子间传输的字节数及耗时
+   * */
+  public void sampleSerialization(Row dynamicRow) {
+    if (++serializationTick < SERIALIZATION_SAMPLE_INTERVAL) {
+      return;
+    }
+    serializationTick = 0;
+
+    serializeBuffer.clear();
+    long start = System.nanoTime();
+    try {
+      DynamicRowSerializer.INSTANCE.serialize(dynamicRow, serializeBuffer);
+    } catch (IOException e) {
+      // 指标采样失败不影响数据处理, 实际传输时会再次抛出
+      return;
+    }
+    long elapsed = System.nanoTime() - start;
+    serializedBytes.inc((long) serializeBuffer.length() * SERIALIZATION_SAMPLE_INTERVAL);
+    serializeNanos.inc(elapsed * SERIALIZATION_SAMPLE_INTERVAL);
+  }
+
+}
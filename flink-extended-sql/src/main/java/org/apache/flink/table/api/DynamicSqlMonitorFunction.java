@@ -1,47 +1,72 @@
 package org.apache.flink.table.api;
 
-import static java.lang.String.format;
-
-import org.apache.flink.table.util.JsonUtils;
-import java.io.File;
-import java.io.FileInputStream;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
-import org.apache.flink.annotation.VisibleForTesting;
-import org.apache.flink.calcite.shaded.com.google.common.collect.Lists;
 import org.apache.flink.configuration.Configuration;
-import org.apache.flink.streaming.api.functions.source.RichParallelSourceFunction;
+import org.apache.flink.streaming.api.functions.source.RichSourceFunction;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.table.api.rule.DynamicSqlRuleSource;
+import org.apache.flink.table.api.rule.DynamicSqlRuleSources;
 import org.apache.flink.table.types.SqlSchemaTuple;
-import org.apache.flink.table.types.schema.SqlCalcSchema;
-import org.apache.flink.table.types.schema.SqlScanSchema;
+import org.apache.flink.table.types.schema.SqlSchema;
+
+/**
+ * 执行计划广播源, 非并行: 仅一个子任务读取规则并发送变更
+ * */
+public class DynamicSqlMonitorFunction extends RichSourceFunction<SqlSchemaTuple> {
 
-@VisibleForTesting
-public class DynamicSqlMonitorFunction extends RichParallelSourceFunction<SqlSchemaTuple> {
+  // 规则源等待超时(ms), 决定取消作业的响应时间, 不影响变更的发送延迟
+  private static final long POLL_TIMEOUT_MILLIS = 200L;
 
-  // TODO: 设计如何给用户开放, 这里仅为测试
+  private final String ruleSourceType;
+  private final Map<String, String> properties;
 
-  private transient boolean running;
-  private transient int nums;
+  private transient volatile boolean running;
+  private transient DynamicSqlRuleSource ruleSource;
+  // 上一次发送的完整执行计划
+  private transient SqlSchemaTuple current;
+
+  public DynamicSqlMonitorFunction(String ruleSourceType, Map<String, String> properties) {
+    this.ruleSourceType = Objects.requireNonNull(ruleSourceType);
+    this.properties = new HashMap<>(properties);
+  }
 
   @Override
   public void open(Configuration parameters) throws Exception {
     this.running = true;
-    this.nums = 0;
+    this.ruleSource = DynamicSqlRuleSources.create(
+        ruleSourceType, properties, getRuntimeContext().getUserCodeClassLoader());
+    this.ruleSource.open();
   }
 
   @Override
   public void run(SourceContext<SqlSchemaTuple> ctx) throws Exception {
-    safeSleep();
+    // 执行计划与事件时间无关, 不参与下游双输入算子的水位计算
+    synchronized (ctx.getCheckpointLock()) {
+      ctx.emitWatermark(Watermark.MAX_WATERMARK);
+    }
+
     while (running) {
-      int i = (nums++ % 4);
-//      if (i != 3) {
-//        continue;
-//      }
-      SqlSchemaTuple schemaTuple = create(i);
-      ctx.collect(schemaTuple);
-      safeSleep();
+      Map<String, SqlSchema> schemas = ruleSource.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      if (schemas == null) {
+        continue;
+      }
+
+      // 版本号取时间戳, 作业重启后仍保持递增
+      long version = current == null
+          ? System.currentTimeMillis()
+          : Math.max(current.getVersion() + 1, System.currentTimeMillis());
+      SqlSchemaTuple schemaTuple = new SqlSchemaTuple(version, schemas);
+      // 仅发送变化的节点
+      SqlSchemaTuple changes = schemaTuple.diff(current);
+      current = schemaTuple;
+      if (!changes.isEmpty()) {
+        synchronized (ctx.getCheckpointLock()) {
+          ctx.collect(changes);
+        }
+      }
     }
   }
 
@@ -50,73 +75,10 @@ public class DynamicSqlMonitorFunction extends RichParallelSourceFunction<SqlSch
     this.running = false;
   }
 
-  private static void safeSleep() {
-    try {
-      TimeUnit.SECONDS.sleep(10);
-    } catch (Exception e) {
-      // ignore
-    }
-  }
-
-  private static SqlSchemaTuple create(int i) {
-    SqlScanSchema scanSchema = new SqlScanSchema(
-        Lists.newArrayList("uid", "uname", "sex", "age", "action", "timestamp"),
-        getSelectFields(i)
-    );
-
-    SqlCalcSchema calcSchema = new SqlCalcSchema(getCodeName(i), getCode(i));
-
-    Map<String, String> map = new HashMap<>();
-    map.put("DynamicStreamTableSourceScan", JsonUtils.toJson(scanSchema));
-    map.put("DynamicDataStreamCalc#DynamicStreamTableSourceScan", JsonUtils.toJson(calcSchema));
-
-    return new SqlSchemaTuple(map);
-  }
-
-  private static List<String> getSelectFields(int i) {
-    switch (i) {
-      case 0:
-      case 1:
-        return Lists.newArrayList("uname", "age", "action", "timestamp", "sex");
-
-      case 2:
-      case 3:
-        return Lists.newArrayList("uname", "action", "timestamp", "sex", "age");
-
-      default:
-        throw new RuntimeException("");
-    }
-  }
-
-  private static String getCode(int i) {
-    File codeFile = new File(DynamicSqlMonitorFunction.class.getResource(format("/code%d.txt", i)).getPath());
-    byte[] content = new byte[(int) codeFile.length()];
-    try {
-      FileInputStream in = new FileInputStream(codeFile);
-      in.read(content);
-      in.close();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-    return new String(content);
-  }
-
-  private static String getCodeName(int i) {
-    switch (i) {
-      case 0:
-        return "DynamicDataStreamCalcRule$36";
-
-      case 1:
-        return "DynamicDataStreamCalcRule$44";
-
-      case 2:
-        return "DynamicDataStreamCalcRule$58";
-
-      case 3:
-        return "DynamicDataStreamCalcRule$69";
-
-      default:
-        throw new RuntimeException("");
+  @Override
+  public void close() throws Exception {
+    if (ruleSource != null) {
+      ruleSource.close();
     }
   }
 
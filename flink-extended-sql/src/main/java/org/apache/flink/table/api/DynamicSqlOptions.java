@@ -0,0 +1,72 @@
+package org.apache.flink.table.api;
+
+import static org.apache.flink.configuration.ConfigOptions.key;
+
+import org.apache.flink.configuration.ConfigOption;
+
+/**
+ * 动态 SQL 配置项, 通过 {@link TableConfig#getConfiguration()} 设置
+ * */
+public class DynamicSqlOptions {
+
+  private DynamicSqlOptions() {
+
+  }
+
+  public static final ConfigOption<Boolean> OPERATOR_FUSION_ENABLED =
+      key("table.dynamic.operator-fusion.enabled")
+          .booleanType()
+          .defaultValue(true)
+          .withDescription("Whether to fuse dynamic scan, calc and sink conversion into a single operator.");
+
+  public static final ConfigOption<Boolean> MINI_BATCH_ENABLED =
+      key("table.dynamic.mini-batch.enabled")
+          .booleanType()
+          .defaultValue(false)
+          .withDescription("Whether to buffer records and run the dynamic calc in mini-batches. "
+              + "Only applies to calc operators that are not fused with the scan.");
+
+  public static final ConfigOption<Integer> MINI_BATCH_SIZE =
+      key("table.dynamic.mini-batch.size")
+          .intType()
+          .defaultValue(1000)
+          .withDescription("Maximum number of records buffered in a mini-batch.");
+
+  public static final ConfigOption<Long> MINI_BATCH_LATENCY =
+      key("table.dynamic.mini-batch.latency-ms")
+          .longType()
+          .defaultValue(100L)
+          .withDescription("Maximum time in milliseconds a record stays in a mini-batch buffer.");
+
+  public static final ConfigOption<Long> SOURCE_IDLE_TIMEOUT =
+      key("table.dynamic.source.idle-timeout-ms")
+          .longType()
+          .defaultValue(0L)
+          .withDescription("Time in milliseconds after which a source subtask without records is marked idle "
+              + "and no longer holds back watermarks. 0 disables idleness detection.");
+
+  public static final ConfigOption<Integer> SWAP_MAX_ALIGNED_RECORDS =
+      key("table.dynamic.swap.max-aligned-records")
+          .intType()
+          .defaultValue(10000)
+          .withDescription("Maximum number of records of a new schema version buffered by a dynamic calc "
+              + "while its function is compiling. When exceeded, the calc waits for the compilation to finish.");
+
+  public static final ConfigOption<Long> SWAP_DRAIN_INTERVAL =
+      key("table.dynamic.swap.drain-interval-ms")
+          .longType()
+          .defaultValue(100L)
+          .withDescription("Interval in milliseconds at which a dynamic calc with buffered records checks whether "
+              + "the new function has compiled, so the records are processed even if no new records arrive. "
+              + "Buffered records are always processed before a watermark is forwarded and when the input ends.");
+
+  // 规则源配置项前缀, 如: table.dynamic.rule-source.path
+  public static final String RULE_SOURCE_PREFIX = "table.dynamic.rule-source.";
+
+  public static final ConfigOption<String> RULE_SOURCE_TYPE =
+      key(RULE_SOURCE_PREFIX + "type")
+          .stringType()
+          .noDefaultValue()
+          .withDescription("Type of the execution plan rule source, e.g. 'directory' or 'http'.");
+
+}
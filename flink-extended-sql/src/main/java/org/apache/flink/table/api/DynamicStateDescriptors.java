@@ -0,0 +1,61 @@
+package org.apache.flink.table.api;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.table.runtime.types.CRow;
+import org.apache.flink.table.runtime.types.CRowTypeInfo;
+import org.apache.flink.table.types.DynamicRowTypeInfo;
+
+/**
+ * 动态 SQL 算子状态, 名称及类型变化将导致无法从旧的 Checkpoint 恢复
+ * */
+public class DynamicStateDescriptors {
+
+  private DynamicStateDescriptors() {
+
+  }
+
+  /**
+   * 广播状态: 节点名 -> (源字段索引, 选择字段)
+   * */
+  public static MapStateDescriptor<String, Tuple2<Map<String, Integer>, List<String>>> scanRuleState() {
+    return new MapStateDescriptor<>(
+        "BroadcastState",
+        Types.STRING,
+        Types.TUPLE(
+            Types.MAP(Types.STRING, Types.INT),
+            Types.LIST(Types.STRING)
+        )
+    );
+  }
+
+  /**
+   * 已处理的执行计划版本, 各子任务相同, 恢复时取最大值
+   * */
+  public static ListStateDescriptor<Long> schemaVersionState() {
+    return new ListStateDescriptor<>("SchemaVersionState", Types.LONG);
+  }
+
+  /**
+   * 最新 Calc 代码: (版本, 类名, 代码), 恢复时取版本最大值
+   * */
+  public static ListStateDescriptor<Tuple3<Long, String, String>> calcState() {
+    return new ListStateDescriptor<>("CalcState", Types.TUPLE(Types.LONG, Types.STRING, Types.STRING));
+  }
+
+  /**
+   * 等待新 Calc 函数生效而缓冲的数据行: (数据, 时间戳), 无时间戳时为 Long.MIN_VALUE
+   * */
+  public static ListStateDescriptor<Tuple2<CRow, Long>> alignedRecordState() {
+    return new ListStateDescriptor<>(
+        "AlignedRecordState",
+        new TupleTypeInfo<>(new CRowTypeInfo(new DynamicRowTypeInfo()), Types.LONG));
+  }
+
+}
@@ -0,0 +1,160 @@
+package org.apache.flink.table.api.rule;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.table.types.schema.SqlSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 监听目录下的规则文件, 每个文件包含若干节点, 执行计划为所有文件节点的合集.
+ *
+ * 建议先写临时文件再重命名, 写入过程中的不完整文件解析失败时等待下一次变更事件.
+ * */
+public class DirectoryWatchRuleSource implements DynamicSqlRuleSource {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DirectoryWatchRuleSource.class);
+
+  private final Path directory;
+  private final String fileSuffix;
+
+  private WatchService watchService;
+  // 文件 -> 文件中的节点, 按文件名有序合并
+  private Map<Path, Map<String, SqlSchema>> fileToSchemas;
+  private boolean changed;
+
+  public DirectoryWatchRuleSource(String directory, String fileSuffix) {
+    this.directory = Paths.get(Objects.requireNonNull(directory, "rule directory path is required"));
+    this.fileSuffix = Objects.requireNonNull(fileSuffix);
+  }
+
+  @Override
+  public void open() throws Exception {
+    fileToSchemas = new TreeMap<>();
+    // 先注册再加载, 避免丢失加载期间的变更
+    watchService = FileSystems.getDefault().newWatchService();
+    directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    reloadAll();
+  }
+
+  @Override
+  public Map<String, SqlSchema> poll(long timeout, TimeUnit unit) throws Exception {
+    if (!changed) {
+      WatchKey key = watchService.poll(timeout, unit);
+      // 合并同一批次的事件
+      while (key != null) {
+        handleEvents(key);
+        key = watchService.poll();
+      }
+    }
+
+    if (!changed) {
+      return null;
+    }
+    changed = false;
+
+    Map<String, SqlSchema> schemas = new HashMap<>();
+    for (Map<String, SqlSchema> nodes : fileToSchemas.values()) {
+      schemas.putAll(nodes);
+    }
+    return schemas;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  private void handleEvents(WatchKey key) throws IOException {
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        LOG.warn("Rule directory {} events overflow, reload all rule files", directory);
+        reloadAll();
+        continue;
+      }
+
+      Path file = directory.resolve((Path) event.context());
+      if (!file.getFileName().toString().endsWith(fileSuffix)) {
+        continue;
+      }
+      if (event.kind() == ENTRY_DELETE) {
+        changed |= fileToSchemas.remove(file) != null;
+      } else if (Files.isRegularFile(file)) {
+        load(file);
+      }
+    }
+    key.reset();
+  }
+
+  private void reloadAll() throws IOException {
+    fileToSchemas.clear();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        if (isRuleFile(file)) {
+          load(file);
+        }
+      }
+    }
+    changed = true;
+  }
+
+  private void load(Path file) {
+    try {
+      Map<String, SqlSchema> nodes = DynamicSqlRuleParser.parse(read(file));
+      fileToSchemas.put(file, nodes);
+      changed = true;
+      LOG.info("Loaded rule file {}, nodes: {}", file, nodes.keySet());
+    } catch (Exception e) {
+      // 文件可能正在写入
+      LOG.warn("Failed to load rule file {}, wait for next change", file, e);
+    }
+  }
+
+  private boolean isRuleFile(Path file) {
+    return file.getFileName().toString().endsWith(fileSuffix) && Files.isRegularFile(file);
+  }
+
+  private static String read(Path file) throws IOException {
+    // 规则文件较小, 直接读取; 内存映射在 GC 前不会释放, 每次重新加载都会累积
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  public static class Factory implements DynamicSqlRuleSourceFactory {
+
+    public static final String TYPE = "directory";
+
+    @Override
+    public String ruleSourceType() {
+      return TYPE;
+    }
+
+    @Override
+    public DynamicSqlRuleSource createRuleSource(Map<String, String> properties) {
+      return new DirectoryWatchRuleSource(
+          properties.get("path"),
+          properties.getOrDefault("file-suffix", ".json"));
+    }
+
+  }
+
+}
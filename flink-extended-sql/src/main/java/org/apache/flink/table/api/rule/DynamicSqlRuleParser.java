@@ -0,0 +1,86 @@
+package org.apache.flink.table.api.rule;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.types.schema.SqlCalcSchema;
+import org.apache.flink.table.types.schema.SqlScanSchema;
+import org.apache.flink.table.types.schema.SqlSchema;
+
+/**
+ * 规则格式:
+ *
+ * <pre>
+ * {
+ *   "DynamicStreamTableSourceScan": {
+ *     "type": "scan",
+ *     "sourceFieldNames": ["uid", "uname"],
+ *     "selectFieldNames": ["uname"]
+ *   },
+ *   "DynamicDataStreamCalc#DynamicStreamTableSourceScan": {
+ *     "type": "calc",
+ *     "name": "DynamicDataStreamCalcRule$36",
+ *     "code": "..."
+ *   }
+ * }
+ * </pre>
+ * */
+public class DynamicSqlRuleParser {
+
+  private DynamicSqlRuleParser() {
+
+  }
+
+  public static Map<String, SqlSchema> parse(String json) {
+    JsonObject nodes = new JsonParser().parse(json).getAsJsonObject();
+    Map<String, SqlSchema> schemas = new HashMap<>();
+    for (Map.Entry<String, JsonElement> entry : nodes.entrySet()) {
+      schemas.put(entry.getKey(), parseNode(entry.getKey(), entry.getValue().getAsJsonObject()));
+    }
+    return schemas;
+  }
+
+  private static SqlSchema parseNode(String stream, JsonObject node) {
+    String type = getString(stream, node, "type");
+    switch (type) {
+      case "scan":
+        return new SqlScanSchema(
+            getStringList(stream, node, "sourceFieldNames"),
+            getStringList(stream, node, "selectFieldNames"));
+
+      case "calc":
+        return new SqlCalcSchema(getString(stream, node, "name"), getString(stream, node, "code"));
+
+      default:
+        throw new TableException("Unsupported rule type: " + type + ", node: " + stream);
+    }
+  }
+
+  private static String getString(String stream, JsonObject node, String name) {
+    JsonElement element = node.get(name);
+    if (element == null || element.isJsonNull()) {
+      throw new TableException("Rule field '" + name + "' missing, node: " + stream);
+    }
+    return element.getAsString();
+  }
+
+  private static List<String> getStringList(String stream, JsonObject node, String name) {
+    JsonElement element = node.get(name);
+    if (element == null || !element.isJsonArray()) {
+      throw new TableException("Rule field '" + name + "' missing, node: " + stream);
+    }
+    JsonArray array = element.getAsJsonArray();
+    List<String> values = new ArrayList<>(array.size());
+    for (JsonElement value : array) {
+      values.add(value.getAsString());
+    }
+    return values;
+  }
+
+}
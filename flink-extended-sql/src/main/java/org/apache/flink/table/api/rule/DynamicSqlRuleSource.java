@@ -0,0 +1,22 @@
+package org.apache.flink.table.api.rule;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.table.types.schema.SqlSchema;
+
+/**
+ * 执行计划来源, 由 {@link org.apache.flink.table.api.DynamicSqlMonitorFunction} 在单个子任务中运行
+ * */
+public interface DynamicSqlRuleSource extends Closeable {
+
+  void open() throws Exception;
+
+  /**
+   * 等待下一版执行计划, 超时返回 null
+   *
+   * @return 完整执行计划: 节点名 -> 节点 Schema
+   * */
+  Map<String, SqlSchema> poll(long timeout, TimeUnit unit) throws Exception;
+
+}
@@ -0,0 +1,14 @@
+package org.apache.flink.table.api.rule;
+
+import java.util.Map;
+
+/**
+ * 通过 {@link java.util.ServiceLoader} 加载, 在 META-INF/services 中注册
+ * */
+public interface DynamicSqlRuleSourceFactory {
+
+  String ruleSourceType();
+
+  DynamicSqlRuleSource createRuleSource(Map<String, String> properties);
+
+}
@@ -0,0 +1,39 @@
+package org.apache.flink.table.api.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.table.api.DynamicSqlOptions;
+import org.apache.flink.table.api.TableException;
+
+public class DynamicSqlRuleSources {
+
+  private DynamicSqlRuleSources() {
+
+  }
+
+  public static DynamicSqlRuleSource create(String type, Map<String, String> properties, ClassLoader classLoader) {
+    ServiceLoader<DynamicSqlRuleSourceFactory> serviceLoader = ServiceLoader.load(DynamicSqlRuleSourceFactory.class, classLoader);
+    for (DynamicSqlRuleSourceFactory factory : serviceLoader) {
+      if (factory.ruleSourceType().equals(type)) {
+        return factory.createRuleSource(properties);
+      }
+    }
+    throw new TableException("Could not find rule source of type: " + type);
+  }
+
+  /**
+   * 规则源配置项: 去除前缀 {@link DynamicSqlOptions#RULE_SOURCE_PREFIX}
+   * */
+  public static Map<String, String> getRuleSourceProperties(Configuration configuration) {
+    Map<String, String> properties = new HashMap<>();
+    for (Map.Entry<String, String> entry : configuration.toMap().entrySet()) {
+      if (entry.getKey().startsWith(DynamicSqlOptions.RULE_SOURCE_PREFIX)) {
+        properties.put(entry.getKey().substring(DynamicSqlOptions.RULE_SOURCE_PREFIX.length()), entry.getValue());
+      }
+    }
+    return properties;
+  }
+
+}
@@ -0,0 +1,131 @@
+package org.apache.flink.table.api.rule;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.table.types.schema.SqlSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 本地 HTTP 推送: POST {path} 提交完整执行计划, 格式见 {@link DynamicSqlRuleParser}.
+ *
+ * 同一作业的所有动态 Scan 共享一个规则源, 仅监听一个端口.
+ * */
+public class HttpPushRuleSource implements DynamicSqlRuleSource {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HttpPushRuleSource.class);
+
+  private final String host;
+  private final int port;
+  private final String path;
+
+  private HttpServer server;
+  private BlockingQueue<Map<String, SqlSchema>> queue;
+
+  public HttpPushRuleSource(String host, int port, String path) {
+    this.host = host;
+    this.port = port;
+    this.path = path;
+  }
+
+  @Override
+  public void open() throws Exception {
+    queue = new LinkedBlockingQueue<>();
+    server = HttpServer.create(new InetSocketAddress(host, port), 0);
+    server.createContext(path, this::handle);
+    server.start();
+    LOG.info("Rule push endpoint listening on http://{}:{}{}", host, server.getAddress().getPort(), path);
+  }
+
+  @Override
+  public Map<String, SqlSchema> poll(long timeout, TimeUnit unit) throws Exception {
+    Map<String, SqlSchema> schemas = queue.poll(timeout, unit);
+    if (schemas == null) {
+      return null;
+    }
+    // 仅保留最新的执行计划
+    Map<String, SqlSchema> latest;
+    while ((latest = queue.poll()) != null) {
+      schemas = latest;
+    }
+    return schemas;
+  }
+
+  @Override
+  public void close() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+        respond(exchange, HttpURLConnection.HTTP_BAD_METHOD, "Only POST is supported");
+        return;
+      }
+
+      Map<String, SqlSchema> schemas;
+      try {
+        schemas = DynamicSqlRuleParser.parse(readBody(exchange.getRequestBody()));
+      } catch (Exception e) {
+        LOG.warn("Rejected invalid rule from {}", exchange.getRemoteAddress(), e);
+        respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, String.valueOf(e.getMessage()));
+        return;
+      }
+      queue.offer(schemas);
+      respond(exchange, HttpURLConnection.HTTP_ACCEPTED, "accepted");
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static String readBody(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int len;
+    while ((len = in.read(buffer)) != -1) {
+      out.write(buffer, 0, len);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static void respond(HttpExchange exchange, int code, String message) throws IOException {
+    byte[] body = message.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(code, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  public static class Factory implements DynamicSqlRuleSourceFactory {
+
+    public static final String TYPE = "http";
+
+    @Override
+    public String ruleSourceType() {
+      return TYPE;
+    }
+
+    @Override
+    public DynamicSqlRuleSource createRuleSource(Map<String, String> properties) {
+      return new HttpPushRuleSource(
+          properties.getOrDefault("host", "127.0.0.1"),
+          Integer.parseInt(properties.getOrDefault("port", "0")),
+          properties.getOrDefault("path", "/rules"));
+    }
+
+  }
+
+}
@@ -0,0 +1,370 @@
+package org.apache.flink.table.types;
+
+import static org.apache.flink.table.types.DynamicRowTypeInfo.ARITY;
+import static org.apache.flink.table.types.DynamicRowTypeInfo.DATA_INDEX;
+import static org.apache.flink.table.types.DynamicRowTypeInfo.TYPE_INDEX;
+import static org.apache.flink.table.types.DynamicRowTypeInfo.VERSION_INDEX;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.types.Row;
+import org.apache.flink.types.StringValue;
+import org.apache.flink.util.InstantiationUtil;
+
+/**
+ * {@link DynamicRowTypeInfo} 的二进制序列化:
+ *
+ * <pre>
+ *   type(1 byte) | version(8 bytes) | data
+ *   DATA   : arity(varint) | [tag(1 byte) | value] ...
+ *   SCHEMA : length(4 bytes) | SqlSchemaTuple(java serialization)
+ * </pre>
+ *
+ * 投影字段随 SQL 变化, 字段类型无法在编译期确定, 故每个字段值以类型标识开头.
+ * */
+public final class DynamicRowSerializer extends TypeSerializer<Row> {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final DynamicRowSerializer INSTANCE = new DynamicRowSerializer();
+
+  // 字段值类型标识
+  private static final byte NULL = 0;
+  private static final byte BOOLEAN = 1;
+  private static final byte BYTE = 2;
+  private static final byte SHORT = 3;
+  private static final byte INT = 4;
+  private static final byte LONG = 5;
+  private static final byte FLOAT = 6;
+  private static final byte DOUBLE = 7;
+  private static final byte STRING = 8;
+  private static final byte DECIMAL = 9;
+  private static final byte DATE = 10;
+  private static final byte TIME = 11;
+  private static final byte TIMESTAMP = 12;
+  private static final byte BYTES = 13;
+  private static final byte ROW = 14;
+  private static final byte GENERIC = 15;
+
+  private static final RowDataType[] ROW_DATA_TYPES = RowDataType.values();
+
+  private DynamicRowSerializer() {
+
+  }
+
+  @Override
+  public boolean isImmutableType() {
+    return false;
+  }
+
+  @Override
+  public TypeSerializer<Row> duplicate() {
+    // 无状态
+    return this;
+  }
+
+  @Override
+  public Row createInstance() {
+    return new Row(ARITY);
+  }
+
+  @Override
+  public Row copy(Row from) {
+    Row to = new Row(ARITY);
+    to.setField(TYPE_INDEX, from.getField(TYPE_INDEX));
+    to.setField(VERSION_INDEX, from.getField(VERSION_INDEX));
+    Object data = from.getField(DATA_INDEX);
+    // SqlSchemaTuple 不可变, 无需拷贝
+    to.setField(DATA_INDEX, data instanceof Row ? copyRow((Row) data) : data);
+    return to;
+  }
+
+  @Override
+  public Row copy(Row from, Row reuse) {
+    return copy(from);
+  }
+
+  @Override
+  public int getLength() {
+    return -1;
+  }
+
+  @Override
+  public void serialize(Row record, DataOutputView target) throws IOException {
+    RowDataType type = (RowDataType) record.getField(TYPE_INDEX);
+    target.writeByte(type.ordinal());
+    target.writeLong((Long) record.getField(VERSION_INDEX));
+    Object data = record.getField(DATA_INDEX);
+    if (type == RowDataType.DATA) {
+      writeRow((Row) data, target);
+    } else {
+      byte[] bytes = InstantiationUtil.serializeObject(data);
+      target.writeInt(bytes.length);
+      target.write(bytes);
+    }
+  }
+
+  @Override
+  public Row deserialize(DataInputView source) throws IOException {
+    return deserialize(createInstance(), source);
+  }
+
+  @Override
+  public Row deserialize(Row reuse, DataInputView source) throws IOException {
+    RowDataType type = ROW_DATA_TYPES[source.readByte()];
+    reuse.setField(TYPE_INDEX, type);
+    reuse.setField(VERSION_INDEX, source.readLong());
+    if (type == RowDataType.DATA) {
+      Object data = reuse.getField(DATA_INDEX);
+      reuse.setField(DATA_INDEX, readRow(data instanceof Row ? (Row) data : null, source));
+    } else {
+      byte[] bytes = new byte[source.readInt()];
+      source.readFully(bytes);
+      reuse.setField(DATA_INDEX, deserializeObject(bytes));
+    }
+    return reuse;
+  }
+
+  @Override
+  public void copy(DataInputView source, DataOutputView target) throws IOException {
+    serialize(deserialize(source), target);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof DynamicRowSerializer;
+  }
+
+  @Override
+  public int hashCode() {
+    return DynamicRowSerializer.class.hashCode();
+  }
+
+  @Override
+  public TypeSerializerSnapshot<Row> snapshotConfiguration() {
+    return new DynamicRowSerializerSnapshot();
+  }
+
+  private static void writeRow(Row row, DataOutputView target) throws IOException {
+    int arity = row.getArity();
+    writeVarInt(arity, target);
+    for (int i = 0; i < arity; ++i) {
+      writeValue(row.getField(i), target);
+    }
+  }
+
+  private static Row readRow(Row reuse, DataInputView source) throws IOException {
+    int arity = readVarInt(source);
+    Row row = reuse != null && reuse.getArity() == arity ? reuse : new Row(arity);
+    for (int i = 0; i < arity; ++i) {
+      row.setField(i, readValue(source));
+    }
+    return row;
+  }
+
+  private static void writeValue(Object value, DataOutputView target) throws IOException {
+    if (value == null) {
+      target.writeByte(NULL);
+      return;
+    }
+
+    Class<?> clazz = value.getClass();
+    if (clazz == String.class) {
+      target.writeByte(STRING);
+      StringValue.writeString((String) value, target);
+    } else if (clazz == Integer.class) {
+      target.writeByte(INT);
+      target.writeInt((Integer) value);
+    } else if (clazz == Long.class) {
+      target.writeByte(LONG);
+      target.writeLong((Long) value);
+    } else if (clazz == Double.class) {
+      target.writeByte(DOUBLE);
+      target.writeDouble((Double) value);
+    } else if (clazz == Boolean.class) {
+      target.writeByte(BOOLEAN);
+      target.writeBoolean((Boolean) value);
+    } else if (clazz == Float.class) {
+      target.writeByte(FLOAT);
+      target.writeFloat((Float) value);
+    } else if (clazz == Short.class) {
+      target.writeByte(SHORT);
+      target.writeShort((Short) value);
+    } else if (clazz == Byte.class) {
+      target.writeByte(BYTE);
+      target.writeByte((Byte) value);
+    } else if (clazz == Timestamp.class) {
+      Timestamp timestamp = (Timestamp) value;
+      target.writeByte(TIMESTAMP);
+      target.writeLong(timestamp.getTime());
+      target.writeInt(timestamp.getNanos());
+    } else if (clazz == Date.class) {
+      target.writeByte(DATE);
+      target.writeLong(((Date) value).getTime());
+    } else if (clazz == Time.class) {
+      target.writeByte(TIME);
+      target.writeLong(((Time) value).getTime());
+    } else if (clazz == BigDecimal.class) {
+      BigDecimal decimal = (BigDecimal) value;
+      byte[] unscaled = decimal.unscaledValue().toByteArray();
+      target.writeByte(DECIMAL);
+      writeVarInt(decimal.scale(), target);
+      writeVarInt(unscaled.length, target);
+      target.write(unscaled);
+    } else if (clazz == byte[].class) {
+      byte[] bytes = (byte[]) value;
+      target.writeByte(BYTES);
+      writeVarInt(bytes.length, target);
+      target.write(bytes);
+    } else if (clazz == Row.class) {
+      target.writeByte(ROW);
+      writeRow((Row) value, target);
+    } else {
+      byte[] bytes = InstantiationUtil.serializeObject(value);
+      target.writeByte(GENERIC);
+      writeVarInt(bytes.length, target);
+      target.write(bytes);
+    }
+  }
+
+  private static Object readValue(DataInputView source) throws IOException {
+    byte tag = source.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return StringValue.readString(source);
+      case INT:
+        return source.readInt();
+      case LONG:
+        return source.readLong();
+      case DOUBLE:
+        return source.readDouble();
+      case BOOLEAN:
+        return source.readBoolean();
+      case FLOAT:
+        return source.readFloat();
+      case SHORT:
+        return source.readShort();
+      case BYTE:
+        return source.readByte();
+      case TIMESTAMP:
+        Timestamp timestamp = new Timestamp(source.readLong());
+        timestamp.setNanos(source.readInt());
+        return timestamp;
+      case DATE:
+        return new Date(source.readLong());
+      case TIME:
+        return new Time(source.readLong());
+      case DECIMAL:
+        int scale = readVarInt(source);
+        byte[] unscaled = new byte[readVarInt(source)];
+        source.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+      case BYTES:
+        byte[] bytes = new byte[readVarInt(source)];
+        source.readFully(bytes);
+        return bytes;
+      case ROW:
+        return readRow(null, source);
+      case GENERIC:
+        byte[] content = new byte[readVarInt(source)];
+        source.readFully(content);
+        return deserializeObject(content);
+      default:
+        throw new TableException("Unsupported dynamic row field tag: " + tag);
+    }
+  }
+
+  private static Row copyRow(Row from) {
+    int arity = from.getArity();
+    Row to = new Row(arity);
+    for (int i = 0; i < arity; ++i) {
+      to.setField(i, copyValue(from.getField(i)));
+    }
+    return to;
+  }
+
+  private static Object copyValue(Object value) {
+    if (value == null) {
+      return null;
+    }
+
+    Class<?> clazz = value.getClass();
+    if (clazz == String.class || clazz == Integer.class || clazz == Long.class || clazz == Double.class
+        || clazz == Boolean.class || clazz == Float.class || clazz == Short.class || clazz == Byte.class
+        || clazz == BigDecimal.class) {
+      // 不可变类型
+      return value;
+    } else if (clazz == Timestamp.class) {
+      Timestamp from = (Timestamp) value;
+      Timestamp to = new Timestamp(from.getTime());
+      to.setNanos(from.getNanos());
+      return to;
+    } else if (clazz == Date.class) {
+      return new Date(((Date) value).getTime());
+    } else if (clazz == Time.class) {
+      return new Time(((Time) value).getTime());
+    } else if (clazz == byte[].class) {
+      byte[] bytes = (byte[]) value;
+      return Arrays.copyOf(bytes, bytes.length);
+    } else if (clazz == Row.class) {
+      return copyRow((Row) value);
+    }
+
+    try {
+      return InstantiationUtil.clone((Serializable) value);
+    } catch (Exception e) {
+      throw new TableException("Failed to copy dynamic row field of type " + clazz.getName(), e);
+    }
+  }
+
+  private static Object deserializeObject(byte[] bytes) throws IOException {
+    try {
+      return InstantiationUtil.deserializeObject(bytes, Thread.currentThread().getContextClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void writeVarInt(int value, DataOutputView target) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      target.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    target.writeByte(value);
+  }
+
+  private static int readVarInt(DataInputView source) throws IOException {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = source.readByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  public static final class DynamicRowSerializerSnapshot extends SimpleTypeSerializerSnapshot<Row> {
+
+    public DynamicRowSerializerSnapshot() {
+      super(() -> INSTANCE);
+    }
+
+  }
+
+}
@@ -0,0 +1,58 @@
+package org.apache.flink.table.types;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.types.Row;
+
+/**
+ * 动态算子间传输的数据格式: Row[type, version, data]
+ *
+ * <p>data 为 {@link RowDataType#DATA} 时是投影后的字段值(Row), 为 {@link RowDataType#SCHEMA} 时是 {@link SqlSchemaTuple}
+ * */
+public class DynamicRowTypeInfo extends RowTypeInfo {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final int TYPE_INDEX = 0;
+  public static final int VERSION_INDEX = 1;
+  public static final int DATA_INDEX = 2;
+
+  public static final int ARITY = 3;
+
+  private static final String[] FIELD_NAMES = new String[] {"type", "version", "data"};
+
+  public DynamicRowTypeInfo() {
+    super(
+        new TypeInformation<?>[] {Types.ENUM(RowDataType.class), Types.LONG, Types.GENERIC(Object.class)},
+        FIELD_NAMES);
+  }
+
+  @Override
+  public TypeSerializer<Row> createSerializer(ExecutionConfig config) {
+    return DynamicRowSerializer.INSTANCE;
+  }
+
+  @Override
+  public boolean canEqual(Object obj) {
+    return obj instanceof DynamicRowTypeInfo;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof DynamicRowTypeInfo;
+  }
+
+  @Override
+  public int hashCode() {
+    return DynamicRowTypeInfo.class.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "DynamicRow(type, version, data)";
+  }
+
+}
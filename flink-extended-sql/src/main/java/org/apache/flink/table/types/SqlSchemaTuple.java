@@ -1,26 +1,90 @@
 package org.apache.flink.table.types;
 
-import org.apache.flink.table.util.JsonUtils;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.types.schema.SqlSchema;
 
+/**
+ * 执行计划: 版本号单调递增, 仅携带相对上一版本发生变化的节点
+ * */
 public class SqlSchemaTuple implements Serializable {
 
-  private Map<String, String> streamToSchemas;
+  private static final long serialVersionUID = 1L;
 
-  public SqlSchemaTuple(Map<String, String> streamToSchemas) {
-    this.streamToSchemas = Objects.requireNonNull(streamToSchemas);
+  // 执行计划版本
+  private final long version;
+
+  // 普通 HashMap: 广播流按 GenericType 经 Kryo 序列化, Kryo 无法重建 Collections.unmodifiableMap
+  private final Map<String, SqlSchema> streamToSchemas;
+
+  public SqlSchemaTuple(long version, Map<String, ? extends SqlSchema> streamToSchemas) {
+    this.version = version;
+    this.streamToSchemas = new HashMap<>(Objects.requireNonNull(streamToSchemas));
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public boolean isEmpty() {
+    return streamToSchemas.isEmpty();
   }
 
-  public <T> T getStreamNodeSchema(String stream, Class<T> clazz) {
-    String schema = streamToSchemas.get(stream);
-    if (schema == null || schema.isEmpty()) {
+  public Set<String> getStreamNodes() {
+    return Collections.unmodifiableSet(streamToSchemas.keySet());
+  }
+
+  public boolean containsStreamNode(String stream) {
+    return streamToSchemas.containsKey(stream);
+  }
+
+  public <T extends SqlSchema> T getStreamNodeSchema(String stream, Class<T> clazz) {
+    SqlSchema schema = streamToSchemas.get(stream);
+    if (schema == null) {
       throw new TableException("DataStream execute plan schema empty, node: " + stream);
     }
 
-    return JsonUtils.fromJson(schema, clazz);
+    return clazz.cast(schema);
+  }
+
+  /**
+   * 相对上一版本发生变化的节点, 版本号不变
+   * */
+  public SqlSchemaTuple diff(SqlSchemaTuple previous) {
+    if (previous == null) {
+      return this;
+    }
+
+    Map<String, SqlSchema> changes = new HashMap<>();
+    for (Map.Entry<String, SqlSchema> entry : streamToSchemas.entrySet()) {
+      if (!entry.getValue().equals(previous.streamToSchemas.get(entry.getKey()))) {
+        changes.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return new SqlSchemaTuple(version, changes);
+  }
+
+  /**
+   * 去除已处理的节点, 剩余部分继续向下游发送
+   * */
+  public SqlSchemaTuple without(String stream) {
+    if (!streamToSchemas.containsKey(stream)) {
+      return this;
+    }
+
+    Map<String, SqlSchema> remains = new HashMap<>(streamToSchemas);
+    remains.remove(stream);
+    return new SqlSchemaTuple(version, remains);
+  }
+
+  @Override
+  public String toString() {
+    return "SqlSchemaTuple(version=" + version + ", nodes=" + streamToSchemas.keySet() + ")";
   }
 
 }
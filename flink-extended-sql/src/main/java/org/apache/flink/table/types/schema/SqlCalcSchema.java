@@ -20,4 +20,21 @@ public class SqlCalcSchema implements SqlSchema {
     return code;
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SqlCalcSchema that = (SqlCalcSchema) o;
+    return name.equals(that.name) && code.equals(that.code);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, code);
+  }
+
 }
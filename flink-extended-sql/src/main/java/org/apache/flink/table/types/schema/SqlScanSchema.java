@@ -1,5 +1,6 @@
 package org.apache.flink.table.types.schema;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -9,8 +10,9 @@ public class SqlScanSchema implements SqlSchema {
   private List<String> selectFieldNames;
 
   public SqlScanSchema(List<String> sourceFieldNames, List<String> selectFieldNames) {
-    this.sourceFieldNames = Objects.requireNonNull(sourceFieldNames);
-    this.selectFieldNames = Objects.requireNonNull(selectFieldNames);
+    // 复制为 ArrayList, 调用方传入的不可变列表经 Kryo 序列化时无法重建
+    this.sourceFieldNames = new ArrayList<>(Objects.requireNonNull(sourceFieldNames));
+    this.selectFieldNames = new ArrayList<>(Objects.requireNonNull(selectFieldNames));
   }
 
   public List<String> getSourceFieldNames() {
@@ -21,4 +23,21 @@ public class SqlScanSchema implements SqlSchema {
     return selectFieldNames;
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SqlScanSchema that = (SqlScanSchema) o;
+    return sourceFieldNames.equals(that.sourceFieldNames) && selectFieldNames.equals(that.selectFieldNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(sourceFieldNames, selectFieldNames);
+  }
+
 }
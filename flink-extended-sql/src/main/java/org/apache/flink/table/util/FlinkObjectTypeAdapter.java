@@ -1,109 +0,0 @@
-package org.apache.flink.table.util;
-
-import com.google.gson.Gson;
-import com.google.gson.TypeAdapter;
-import com.google.gson.TypeAdapterFactory;
-import com.google.gson.internal.LinkedTreeMap;
-import com.google.gson.internal.bind.ObjectTypeAdapter;
-import com.google.gson.reflect.TypeToken;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
-import com.google.gson.stream.JsonWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
-/**
- * resolve gson deserialize int to double
- *
- * @author hanhan.zhang
- * */
-public class FlinkObjectTypeAdapter extends TypeAdapter<Object> {
-
-  public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
-    @SuppressWarnings("unchecked")
-    @Override
-    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
-      if (type.getRawType() == Object.class) {
-        return (TypeAdapter<T>) new FlinkObjectTypeAdapter(gson);
-      }
-      return null;
-    }
-  };
-
-
-  private final Gson gson;
-
-  public FlinkObjectTypeAdapter(Gson gson) {
-    this.gson = gson;
-  }
-
-  @Override
-  public void write(JsonWriter out, Object value) throws IOException {
-    if (value == null) {
-      out.nullValue();
-      return;
-    }
-
-    TypeAdapter<Object> typeAdapter = (TypeAdapter<Object>) gson.getAdapter(value.getClass());
-    if (typeAdapter instanceof ObjectTypeAdapter) {
-      out.beginObject();
-      out.endObject();
-      return;
-    }
-
-    typeAdapter.write(out, value);
-  }
-
-  @Override
-  public Object read(JsonReader in) throws IOException {
-    JsonToken token = in.peek();
-    switch (token) {
-      case BEGIN_ARRAY:
-        List<Object> list = new ArrayList<>();
-        in.beginArray();
-        while (in.hasNext()) {
-          list.add(read(in));
-        }
-        in.endArray();
-        return list;
-
-      case BEGIN_OBJECT:
-        Map<String, Object> map = new LinkedTreeMap<>();
-        in.beginObject();
-        while (in.hasNext()) {
-          map.put(in.nextName(), read(in));
-        }
-        in.endObject();
-        return map;
-
-      case STRING:
-        return in.nextString();
-
-      case NUMBER:
-        String s = in.nextString();
-        if (s.contains(".")) {
-          return Double.valueOf(s);
-        } else {
-          try {
-            return Integer.valueOf(s);
-          } catch (Exception e) {
-            return Long.valueOf(s);
-          }
-        }
-
-      case BOOLEAN:
-        return in.nextBoolean();
-
-      case NULL:
-        in.nextNull();
-        return null;
-
-      default:
-        throw new IllegalStateException();
-    }
-
-  }
-
-}
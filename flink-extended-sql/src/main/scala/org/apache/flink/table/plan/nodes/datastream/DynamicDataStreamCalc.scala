@@ -6,13 +6,14 @@ import org.apache.calcite.rel.core.Calc
 import org.apache.calcite.rex.RexProgram
 import org.apache.flink.streaming.api.datastream.DataStream
 import org.apache.flink.streaming.api.functions.ProcessFunction
-import org.apache.flink.table.api.DynamicStreamNameUtils
+import org.apache.flink.table.api.{DynamicSqlOptions, DynamicStreamNameUtils, TableException}
 import org.apache.flink.table.calcite.RelTimeIndicatorConverter
-import org.apache.flink.table.codegen.FunctionCodeGenerator
+import org.apache.flink.table.codegen.{FunctionCodeGenerator, GeneratedFunction}
 import org.apache.flink.table.plan.schema.RowSchema
 import org.apache.flink.table.planner.StreamPlanner
-import org.apache.flink.table.runtime.DynamicCRowProcessRunner
-import org.apache.flink.table.runtime.types.CRow
+import org.apache.flink.table.runtime.{DynamicCRowProcessRunner, DynamicCalcOperator, DynamicMiniBatchCalcOperator}
+import org.apache.flink.table.runtime.types.{CRow, CRowTypeInfo}
+import org.apache.flink.types.Row
 
 import scala.collection.JavaConverters._
 
@@ -46,10 +47,64 @@ class DynamicDataStreamCalc(
   }
 
   override def translateToPlan(planner: StreamPlanner): DataStream[CRow] = {
-    val config = planner.getConfig
-
     val inputDataStream = getInput.asInstanceOf[DataStreamRel].translateToPlan(planner)
 
+    val genFunction = generateCalcFunction(planner)
+
+    val inputParallelism = inputDataStream.getParallelism
+
+    val configuration = planner.getConfig.getConfiguration
+    val processFunc = new DynamicCRowProcessRunner(
+      DynamicStreamNameUtils.getStreamNodeUniqueName(this),
+      genFunction.name,
+      genFunction.code,
+      configuration.getInteger(DynamicSqlOptions.SWAP_MAX_ALIGNED_RECORDS))
+
+    val calcStream = if (configuration.getBoolean(DynamicSqlOptions.MINI_BATCH_ENABLED)) {
+      val batchSize = configuration.getInteger(DynamicSqlOptions.MINI_BATCH_SIZE)
+      val latencyMillis = configuration.getLong(DynamicSqlOptions.MINI_BATCH_LATENCY)
+      if (batchSize <= 0 || latencyMillis <= 0) {
+        throw new TableException(
+          s"Invalid mini-batch config, size: $batchSize, latency: $latencyMillis ms.")
+      }
+      inputDataStream.transform(
+        calcOpName(calcProgram, getExpressionString),
+        processFunc.getProducedType,
+        new DynamicMiniBatchCalcOperator(processFunc, inputDataStream.getType, batchSize, latencyMillis))
+    } else {
+      // 逐条处理, 暂存数据由算子定时及在 Watermark, 输入结束前输出
+      inputDataStream.transform(
+        calcOpName(calcProgram, getExpressionString),
+        processFunc.getProducedType,
+        new DynamicCalcOperator(processFunc, configuration.getLong(DynamicSqlOptions.SWAP_DRAIN_INTERVAL)))
+    }
+
+    // keep parallelism to ensure order of accumulate and retract messages
+    calcStream.setParallelism(inputParallelism)
+
+  }
+
+  /**
+    * Scan, Calc 及 Sink 数据转换融合为一个算子
+    */
+  def translateToFusedPlan(
+      planner: StreamPlanner,
+      scan: DynamicStreamTableSourceScan): DataStream[CRow] = {
+    val genFunction = generateCalcFunction(planner)
+
+    scan.translateToFusedPlan(
+      planner,
+      DynamicStreamNameUtils.getStreamNodeUniqueName(this),
+      genFunction.name,
+      genFunction.code,
+      CRowTypeInfo(schema.typeInfo))
+      .name(calcOpName(calcProgram, getExpressionString))
+  }
+
+  private def generateCalcFunction(
+      planner: StreamPlanner): GeneratedFunction[ProcessFunction[CRow, CRow], Row] = {
+    val config = planner.getConfig
+
     // materialize time attributes in condition
     val condition = if (calcProgram.getCondition != null) {
       val materializedCondition = RelTimeIndicatorConverter.convertExpression(
@@ -67,7 +122,7 @@ class DynamicDataStreamCalc(
 
     val generator = new FunctionCodeGenerator(config, false, inputSchema.typeInfo)
 
-    val genFunction = generateFunction(
+    generateFunction(
       generator,
       ruleDescription,
       schema,
@@ -75,19 +130,5 @@ class DynamicDataStreamCalc(
       condition,
       config,
       classOf[ProcessFunction[CRow, CRow]])
-
-    val inputParallelism = inputDataStream.getParallelism
-
-    val processFunc = new DynamicCRowProcessRunner(
-      DynamicStreamNameUtils.getStreamNodeUniqueName(this),
-      genFunction.name,
-      genFunction.code)
-
-    inputDataStream
-      .process(processFunc)
-      .name(calcOpName(calcProgram, getExpressionString))
-      // keep parallelism to ensure order of accumulate and retract messages
-      .setParallelism(inputParallelism)
-
   }
 }
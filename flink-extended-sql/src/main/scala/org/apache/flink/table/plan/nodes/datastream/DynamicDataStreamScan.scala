@@ -1,24 +1,18 @@
 package org.apache.flink.table.plan.nodes.datastream
 
-import java.lang.{String => JString}
-import java.util.{List => JList, Map => JMap}
-
 import org.apache.calcite.plan.{RelOptCluster, RelOptSchema, RelTraitSet}
 import org.apache.calcite.prepare.RelOptTableImpl
 import org.apache.calcite.rel.`type`.RelDataType
 import org.apache.calcite.rel.core.TableScan
 import org.apache.calcite.rel.{RelNode, RelWriter}
 import org.apache.calcite.rex.RexNode
-import org.apache.flink.api.common.state.MapStateDescriptor
-import org.apache.flink.api.common.typeinfo.{TypeInformation, Types}
-import org.apache.flink.api.java.tuple.Tuple2
-import org.apache.flink.api.java.typeutils.{RowTypeInfo, TupleTypeInfo}
 import org.apache.flink.streaming.api.datastream.DataStream
-import org.apache.flink.table.api.{DynamicBroadcastFunction, DynamicSqlMonitorFunction, DynamicStreamNameUtils}
+import org.apache.flink.table.api.{DynamicBroadcastFunction, DynamicStreamNameUtils}
 import org.apache.flink.table.expressions.Cast
 import org.apache.flink.table.plan.schema.RowSchema
 import org.apache.flink.table.planner.StreamPlanner
 import org.apache.flink.table.runtime.types.{CRow, CRowTypeInfo}
+import org.apache.flink.table.types.DynamicRowTypeInfo
 import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo
 
 import scala.collection.JavaConverters._
@@ -77,19 +71,7 @@ class DynamicDataStreamScan(
   }
 
   override def translateToPlan(planner: StreamPlanner): DataStream[CRow] = {
-    val env = planner.getExecutionEnvironment
-    // broadcast stream
-    val sqlSchemaStream = env.addSource(new DynamicSqlMonitorFunction)
-    val valueType = new TupleTypeInfo[Tuple2[JMap[JString, JString], JList[JString]]](
-      Types.MAP(Types.STRING, Types.INT),
-      Types.LIST(Types.STRING)
-    )
-    val stateDescriptor = new MapStateDescriptor(
-      "BroadcastState",
-      Types.STRING,
-      valueType
-    )
-    val broadcastStream = sqlSchemaStream.broadcast(stateDescriptor)
+    val broadcastStream = DynamicStreamScanUtils.getSchemaBroadcastStream(planner)
 
     // source stream
     val dataStream = translateDataStream(planner)
@@ -97,12 +79,7 @@ class DynamicDataStreamScan(
     val uniqueNodeName = DynamicStreamNameUtils.getStreamNodeUniqueName(this)
     val sourceFieldNames = deriveRowType().getFieldNames
 
-    val returnTypeInfo = CRowTypeInfo(
-      new RowTypeInfo(
-        Array[TypeInformation[_]](Types.STRING, Types.STRING),
-        Array[String]("type", "data")
-      )
-    )
+    val returnTypeInfo = CRowTypeInfo(new DynamicRowTypeInfo)
 
     dataStream.connect(broadcastStream)
       .process(new DynamicBroadcastFunction(uniqueNodeName, sourceFieldNames, sourceFieldNames))
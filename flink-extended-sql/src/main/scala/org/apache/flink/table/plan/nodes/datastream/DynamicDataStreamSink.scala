@@ -4,15 +4,16 @@ import org.apache.calcite.plan.{RelOptCluster, RelTraitSet}
 import org.apache.calcite.rel.RelNode
 import org.apache.flink.api.common.typeinfo.TypeInformation
 import org.apache.flink.api.dag.Transformation
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
 import org.apache.flink.api.java.typeutils.RowTypeInfo
 import org.apache.flink.streaming.api.datastream.{DataStream, DataStreamSink => StreamingDataStreamSink}
-import org.apache.flink.table.api.{TableException, TableSchema}
+import org.apache.flink.table.api.{DynamicSqlOptions, TableException, TableSchema}
 import org.apache.flink.table.calcite.FlinkTypeFactory
 import org.apache.flink.table.plan.nodes.Sink
 import org.apache.flink.table.plan.util.UpdatingPlanChecker
 import org.apache.flink.table.planner.{DataStreamConversions, StreamPlanner}
 import org.apache.flink.table.runtime.types.{CRow, CRowTypeInfo}
-import org.apache.flink.table.runtime.{DynamicSqlSinkFilterFunction, DynamicSqlSinkMapFunction}
+import org.apache.flink.table.runtime.DynamicSqlSinkMapFunction
 import org.apache.flink.table.sinks.{AppendStreamTableSink, RetractStreamTableSink, TableSink, UpsertStreamTableSink}
 import org.apache.flink.table.types.utils.TypeConversions
 
@@ -39,15 +40,70 @@ class DynamicDataStreamSink(
   private def writeToSink[T](planner: StreamPlanner): Transformation[_] = {
     sink match {
       case retractSink: RetractStreamTableSink[T] =>
-        throw new RuntimeException("Unsupported")
+        val resultSink = writeToRetractSink(retractSink, planner)
+        resultSink.getTransformation
 
       case upsertSink: UpsertStreamTableSink[T] =>
-        throw new RuntimeException("Unsupported")
+        val resultSink = writeToUpsertSink(upsertSink, planner)
+        resultSink.getTransformation
 
       case appendSink: AppendStreamTableSink[T] =>
         val resultSink = writeToAppendSink(appendSink, planner)
         resultSink.getTransformation
+
+      case _ =>
+        throw new TableException("Stream Tables can only be emitted by AppendStreamTableSink, " +
+          "RetractStreamTableSink, or UpsertStreamTableSink.")
+    }
+  }
+
+  private def writeToRetractSink[T](
+      sink: RetractStreamTableSink[T],
+      planner: StreamPlanner): StreamingDataStreamSink[_] = {
+
+    val outputType = TypeConversions.fromDataTypeToLegacyInfo(sink.getConsumedDataType)
+      .asInstanceOf[TypeInformation[JTuple2[java.lang.Boolean, T]]]
+    val resultType = getTableSchema
+    // translate the Table into a DataStream and provide the type that the TableSink expects.
+    val result: DataStream[JTuple2[java.lang.Boolean, T]] =
+      translateInput(
+        planner,
+        resultType,
+        outputType,
+        withChangeFlag = true)
+    // Give the DataStream to the TableSink to emit it.
+    sink.consumeDataStream(result)
+  }
+
+  private def writeToUpsertSink[T](
+      sink: UpsertStreamTableSink[T],
+      planner: StreamPlanner): StreamingDataStreamSink[_] = {
+
+    // check for append only table
+    val isAppendOnlyTable = UpdatingPlanChecker.isAppendOnly(getInput)
+    sink.setIsAppendOnly(isAppendOnlyTable)
+    // extract unique key fields
+    val tableKeys: Option[Array[String]] = UpdatingPlanChecker.getUniqueKeyFields(getInput)
+    // check that we have keys if the table has changes (is not append-only)
+    tableKeys match {
+      case Some(keys) => sink.setKeyFields(keys)
+      case None if isAppendOnlyTable => sink.setKeyFields(null)
+      case None if !isAppendOnlyTable => throw new TableException(
+        "UpsertStreamTableSink requires that Table has full primary keys if it is updated.")
     }
+
+    val outputType = TypeConversions.fromDataTypeToLegacyInfo(sink.getConsumedDataType)
+      .asInstanceOf[TypeInformation[JTuple2[java.lang.Boolean, T]]]
+    val resultType = getTableSchema
+    // translate the Table into a DataStream and provide the type that the TableSink expects.
+    val result: DataStream[JTuple2[java.lang.Boolean, T]] =
+      translateInput(
+        planner,
+        resultType,
+        outputType,
+        withChangeFlag = true)
+    // Give the DataStream to the TableSink to emit it.
+    sink.consumeDataStream(result)
   }
 
   private def writeToAppendSink[T](
@@ -78,12 +134,23 @@ class DynamicDataStreamSink(
            logicalSchema: TableSchema,
            tpe: TypeInformation[A],
            withChangeFlag: Boolean): DataStream[A] = {
-    val dataStream = getInput().asInstanceOf[DataStreamRel].translateToPlan(planner)
-
-    //
-    val resultStream = dataStream.filter(new DynamicSqlSinkFilterFunction)
-        .map(new DynamicSqlSinkMapFunction)
-        .returns(getReturnCRowTypeInfo)
+    val configuration = planner.getConfig.getConfiguration
+    val fusionEnabled = configuration.getBoolean(DynamicSqlOptions.OPERATOR_FUSION_ENABLED)
+
+    val resultStream = getInput match {
+      // Scan -> Calc -> Sink 融合为一个算子, 数据行不再经过中间格式
+      case calc: DynamicDataStreamCalc
+        if fusionEnabled && calc.getInput.isInstanceOf[DynamicStreamTableSourceScan] =>
+        calc.translateToFusedPlan(planner, calc.getInput.asInstanceOf[DynamicStreamTableSourceScan])
+
+      case _ =>
+        val dataStream = getInput().asInstanceOf[DataStreamRel].translateToPlan(planner)
+        // 单个算子完成控制行过滤及数据行还原
+        dataStream.flatMap(new DynamicSqlSinkMapFunction)
+          .returns(getReturnCRowTypeInfo)
+          // keep parallelism to ensure order of accumulate and retract messages
+          .setParallelism(dataStream.getParallelism)
+    }
 
     DataStreamConversions.convert(resultStream, logicalSchema, withChangeFlag, tpe, planner.getConfig)
   }
@@ -0,0 +1,45 @@
+package org.apache.flink.table.plan.nodes.datastream
+
+import java.util.{Collections, WeakHashMap}
+
+import org.apache.flink.streaming.api.datastream.BroadcastStream
+import org.apache.flink.table.api.rule.DynamicSqlRuleSources
+import org.apache.flink.table.api.{DynamicSqlMonitorFunction, DynamicSqlOptions, DynamicStateDescriptors, TableException}
+import org.apache.flink.table.planner.StreamPlanner
+import org.apache.flink.table.types.SqlSchemaTuple
+
+object DynamicStreamScanUtils {
+
+  // 每个 Planner 仅创建一个规则源, 多个动态 Scan 共享: 规则源可能监听固定端口, 且各 Scan 须收到同一份执行计划
+  private val SCHEMA_BROADCAST_STREAMS = Collections.synchronizedMap(
+    new WeakHashMap[StreamPlanner, BroadcastStream[SqlSchemaTuple]]())
+
+  def getSchemaBroadcastStream(planner: StreamPlanner): BroadcastStream[SqlSchemaTuple] = {
+    SCHEMA_BROADCAST_STREAMS.synchronized {
+      var broadcastStream = SCHEMA_BROADCAST_STREAMS.get(planner)
+      if (broadcastStream == null) {
+        broadcastStream = newSchemaBroadcastStream(planner)
+        SCHEMA_BROADCAST_STREAMS.put(planner, broadcastStream)
+      }
+      broadcastStream
+    }
+  }
+
+  private def newSchemaBroadcastStream(planner: StreamPlanner): BroadcastStream[SqlSchemaTuple] = {
+    val env = planner.getExecutionEnvironment
+    val configuration = planner.getConfig.getConfiguration
+    val ruleSourceType = configuration.getString(DynamicSqlOptions.RULE_SOURCE_TYPE)
+    if (ruleSourceType == null) {
+      throw new TableException(s"Dynamic sql requires '${DynamicSqlOptions.RULE_SOURCE_TYPE.key()}' to be set.")
+    }
+    // broadcast stream: 非并行源, 每个变更仅发送一次
+    val sqlSchemaStream = env
+      .addSource(
+        new DynamicSqlMonitorFunction(ruleSourceType, DynamicSqlRuleSources.getRuleSourceProperties(configuration)),
+        "DynamicSqlRuleSource")
+      // 控制流数据量小, 立即发送, 不等待缓冲区填满
+      .setBufferTimeout(0)
+    sqlSchemaStream.broadcast(DynamicStateDescriptors.scanRuleState())
+  }
+
+}
@@ -1,24 +1,22 @@
 package org.apache.flink.table.plan.nodes.datastream
 
-import java.lang.{String => JString}
 import java.util.function.{Function => JFunction}
-import java.util.{List => JList, Map => JMap}
 
 import org.apache.calcite.plan._
 import org.apache.calcite.rel.RelNode
 import org.apache.calcite.rel.`type`.RelDataType
 import org.apache.calcite.rel.metadata.RelMetadataQuery
-import org.apache.flink.api.common.state.MapStateDescriptor
-import org.apache.flink.api.common.typeinfo.{TypeInformation, Types}
-import org.apache.flink.api.java.tuple.Tuple2
-import org.apache.flink.api.java.typeutils.{RowTypeInfo, TupleTypeInfo}
-import org.apache.flink.streaming.api.datastream.DataStream
-import org.apache.flink.table.api.{DynamicBroadcastFunction, DynamicSqlMonitorFunction, DynamicStreamNameUtils, TableException, TableSchema}
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.streaming.api.datastream.{DataStream, SingleOutputStreamOperator}
+import org.apache.flink.table.api.{DynamicBroadcastFunction, DynamicSqlOptions, DynamicStreamNameUtils, TableException, TableSchema}
 import org.apache.flink.table.plan.nodes.PhysicalTableSourceScan
 import org.apache.flink.table.plan.schema.RowSchema
 import org.apache.flink.table.planner.StreamPlanner
+import org.apache.flink.table.runtime.{DynamicFusedCalcFunction, DynamicWatermarkStrategy}
 import org.apache.flink.table.runtime.types.{CRow, CRowTypeInfo}
 import org.apache.flink.table.sources._
+import org.apache.flink.table.sources.wmstrategies.PreserveWatermarks
+import org.apache.flink.table.types.DynamicRowTypeInfo
 import org.apache.flink.table.types.utils.TypeConversions
 import org.apache.flink.table.types.utils.TypeConversions.fromLegacyInfoToDataType
 import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo
@@ -143,30 +141,28 @@ class DynamicStreamTableSourceScan(
     val rowtimeDesc: Option[RowtimeAttributeDescriptor] =
       TableSourceUtil.getRowtimeAttributeDescriptor(tableSource, selectedFields)
 
-    val withWatermarks = if (rowtimeDesc.isDefined) {
-      throw new RuntimeException("unsupported")
-    } else {
-      // No need to generate watermarks if no rowtime attribute is specified.
-      ingestedTable
+    val withWatermarks = rowtimeDesc match {
+      case Some(desc) =>
+        val rowtimeFieldIdx = outputSchema.fieldNames.indexOf(desc.getAttributeName)
+        desc.getWatermarkStrategy match {
+          case _: PreserveWatermarks =>
+            // The watermarks have already been provided by the underlying DataStream.
+            ingestedTable
+          case strategy =>
+            val idleTimeoutMillis = config.getConfiguration.getLong(DynamicSqlOptions.SOURCE_IDLE_TIMEOUT)
+            ingestedTable.assignTimestampsAndWatermarks(
+              new DynamicWatermarkStrategy(strategy, rowtimeFieldIdx, idleTimeoutMillis))
+        }
+      case None =>
+        // No need to generate watermarks if no rowtime attribute is specified.
+        ingestedTable
     }
 
     withWatermarks
   }
 
   override def translateToPlan(planner: StreamPlanner): DataStream[CRow] = {
-    val env = planner.getExecutionEnvironment
-    // broadcast stream
-    val sqlSchemaStream = env.addSource(new DynamicSqlMonitorFunction)
-    val valueType = new TupleTypeInfo[Tuple2[JMap[JString, JString], JList[JString]]](
-      Types.MAP(Types.STRING, Types.INT),
-      Types.LIST(Types.STRING)
-    )
-    val stateDescriptor = new MapStateDescriptor(
-      "BroadcastState",
-      Types.STRING,
-      valueType
-    )
-    val broadcastStream = sqlSchemaStream.broadcast(stateDescriptor)
+    val broadcastStream = DynamicStreamScanUtils.getSchemaBroadcastStream(planner)
 
     // source stream
     val dataStream = translateDataStream(planner)
@@ -175,16 +171,41 @@ class DynamicStreamTableSourceScan(
     val sourceFieldNames = table.getRowType.getFieldNames
     val selectFieldNames = deriveRowType().getFieldNames
 
-    val returnTypeInfo = CRowTypeInfo(
-      new RowTypeInfo(
-        Array[TypeInformation[_]](Types.STRING, Types.STRING),
-        Array[String]("type", "data")
-      )
-    )
+    val returnTypeInfo = CRowTypeInfo(new DynamicRowTypeInfo)
 
     dataStream.connect(broadcastStream)
       .process(new DynamicBroadcastFunction(uniqueNodeName, sourceFieldNames, selectFieldNames))
       .returns(returnTypeInfo)
   }
 
+  /**
+    * 与下游 Calc 及 Sink 数据转换融合, 直接输出 Calc 结果
+    */
+  def translateToFusedPlan(
+      planner: StreamPlanner,
+      calcNodeName: String,
+      calcName: String,
+      calcCode: String,
+      returnType: TypeInformation[CRow]): SingleOutputStreamOperator[CRow] = {
+    val broadcastStream = DynamicStreamScanUtils.getSchemaBroadcastStream(planner)
+
+    // source stream
+    val dataStream = translateDataStream(planner)
+
+    val uniqueNodeName = DynamicStreamNameUtils.getStreamNodeUniqueName(this)
+    val sourceFieldNames = table.getRowType.getFieldNames
+    val selectFieldNames = deriveRowType().getFieldNames
+
+    dataStream.connect(broadcastStream)
+      .process(new DynamicFusedCalcFunction(
+        uniqueNodeName,
+        sourceFieldNames,
+        selectFieldNames,
+        calcNodeName,
+        calcName,
+        calcCode,
+        returnType))
+      .returns(returnType)
+  }
+
 }
@@ -0,0 +1,33 @@
+package org.apache.flink.table.runtime
+
+import java.lang.reflect.Modifier
+
+import com.sdu.flink.table.functions.enhance.BatchEvalScope
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * 查找生成函数中支持批次调用的 UDF 实例
+  */
+object BatchEvalScopes {
+
+  def discover(function: AnyRef): Array[BatchEvalScope] = {
+    val scopes = ArrayBuffer[BatchEvalScope]()
+    var clazz: Class[_] = function.getClass
+    while (clazz != null && clazz != classOf[Object]) {
+      clazz.getDeclaredFields
+        .filter(field => !Modifier.isStatic(field.getModifiers))
+        .filter(field => classOf[BatchEvalScope].isAssignableFrom(field.getType))
+        .foreach(field => {
+          field.setAccessible(true)
+          field.get(function) match {
+            case scope: BatchEvalScope if !scopes.exists(_ eq scope) => scopes += scope
+            case _ =>
+          }
+        })
+      clazz = clazz.getSuperclass
+    }
+    scopes.toArray
+  }
+
+}
@@ -0,0 +1,53 @@
+package org.apache.flink.table.runtime
+
+import java.util
+
+import org.apache.flink.streaming.api.operators.TimestampedCollector
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord
+import org.apache.flink.table.runtime.types.CRow
+
+/**
+  * Mini-batch 缓冲区, 保存数据及其时间戳; 选中某行时同步设置输出时间戳.
+  */
+class DynamicCRowBuffer(capacity: Int, collector: TimestampedCollector[CRow]) {
+
+  private val rows = new Array[CRow](capacity)
+  private val timestamps = new Array[Long](capacity)
+  private val hasTimestamps = new Array[Boolean](capacity)
+
+  private var count = 0
+  private var current = 0
+
+  def add(row: CRow, record: StreamRecord[CRow]): Unit = {
+    rows(count) = row
+    timestamps(count) = record.getTimestamp
+    hasTimestamps(count) = record.hasTimestamp
+    count += 1
+  }
+
+  def size: Int = count
+
+  def isEmpty: Boolean = count == 0
+
+  def isFull: Boolean = count == capacity
+
+  def select(index: Int): CRow = {
+    current = index
+    if (hasTimestamps(index)) {
+      collector.setAbsoluteTimestamp(timestamps(index))
+    } else {
+      collector.eraseTimestamp()
+    }
+    rows(index)
+  }
+
+  def currentTimestamp: java.lang.Long =
+    if (hasTimestamps(current)) timestamps(current) else null
+
+  def clear(): Unit = {
+    util.Arrays.fill(rows.asInstanceOf[Array[AnyRef]], 0, count, null)
+    count = 0
+    current = 0
+  }
+
+}
@@ -1,44 +1,159 @@
 package org.apache.flink.table.runtime
 
+import com.sdu.flink.table.functions.enhance.BatchEvalScope
 import org.apache.flink.api.common.functions.util.FunctionUtils
+import org.apache.flink.api.common.state.ListState
 import org.apache.flink.api.common.typeinfo.TypeInformation
-import org.apache.flink.api.java.typeutils.{ResultTypeQueryable, RowTypeInfo}
-import org.apache.flink.api.scala.typeutils.Types
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2, Tuple3 => JTuple3}
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
 import org.apache.flink.configuration.Configuration
+import org.apache.flink.metrics.Gauge
+import org.apache.flink.runtime.state.{FunctionInitializationContext, FunctionSnapshotContext}
+import org.apache.flink.streaming.api.TimerService
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction
 import org.apache.flink.streaming.api.functions.ProcessFunction
-import org.apache.flink.table.codegen.Compiler
+import org.apache.flink.streaming.api.operators.TimestampedCollector
+import org.apache.flink.table.api.{DynamicOperatorMetrics, DynamicSqlOptions, DynamicStateDescriptors, TableException}
 import org.apache.flink.table.runtime.types.{CRow, CRowTypeInfo}
 import org.apache.flink.table.types.schema.SqlCalcSchema
-import org.apache.flink.table.types.{RowDataType, SqlSchemaTuple}
-import org.apache.flink.table.util.{JsonUtils, Logging}
+import org.apache.flink.table.types.{DynamicRowSerializer, DynamicRowTypeInfo, RowDataType, SqlSchemaTuple}
+import org.apache.flink.table.util.Logging
 import org.apache.flink.types.Row
-import org.apache.flink.util.Collector
+import org.apache.flink.util.{Collector, ExceptionUtils, OutputTag}
 
+import scala.collection.JavaConverters._
+
+/**
+  * 执行动态 Calc 代码, 新代码在后台编译完成后切换.
+  *
+  * 版本对齐: 数据行携带上游投影所用的执行计划版本, 每行由不早于该版本的 Calc 函数处理,
+  * 各子任务及上下游按数据的版本而非收到执行计划的时间切换, 投影与 Calc 不会错配.
+  *   1. 新函数编译期间, 新版本的数据行暂存, 旧版本数据继续由旧函数处理, 不阻塞处理
+  *   2. 暂存数据超过 maxAlignedRecords 时等待编译完成
+  *   3. 保留上一版本函数, 处理尚未切换的上游子任务发送的旧版本数据
+  *   4. 暂存数据不依赖后续输入: 所在算子定时检查编译结果, 并在发送 Watermark 及输入结束前等待编译完成后输出,
+  *      见 [[DynamicCalcOperator]] / [[DynamicMiniBatchCalcOperator]]
+  */
 class DynamicCRowProcessRunner(
     streamUniqueName: String,
     name: String,
-    code: String)
+    code: String,
+    maxAlignedRecords: Int)
   extends ProcessFunction[CRow, CRow]
   with ResultTypeQueryable[CRow]
-  with Compiler[ProcessFunction[Row, Row]]
+  with CheckpointedFunction
   with Logging{
 
+  def this(streamUniqueName: String, name: String, code: String) =
+    this(streamUniqueName, name, code, DynamicSqlOptions.SWAP_MAX_ALIGNED_RECORDS.defaultValue())
+
   private var parameters: Configuration = _
 
   private var function: ProcessFunction[Row, Row] = _
+  // 当前函数对应的执行计划版本
+  private var functionVersion: Long = 0L
+  // 上一版本函数, 处理版本早于 functionVersion 的数据
+  private var previousFunction: ProcessFunction[Row, Row] = _
+  // 生成函数中支持批次调用的 UDF, 随函数切换更新
+  private var batchScopes: Array[BatchEvalScope] = Array.empty
   private var cRowWrapper: DynamicCRowWrappingCollector = _
 
+  private var compiler: DynamicCalcFunctionCompiler = _
+  // 已收到的最新执行计划版本, 上游多个并发会重复发送同一版本
+  private var schemaVersion: Long = 0L
+  // 最近一次函数切换的延迟(ms): 从收到执行计划到新函数生效
+  private var lastSwapLagMillis: Long = 0L
+  private var metrics: DynamicOperatorMetrics = _
+
+  private var versionState: ListState[java.lang.Long] = _
+  // 已生效的 Calc 代码, 随 Checkpoint 持久化
+  private var calcState: ListState[JTuple3[java.lang.Long, String, String]] = _
+  private var calcVersion: Long = 0L
+  private var calcName: String = name
+  private var calcCode: String = code
+
+  // 等待新函数生效的数据行及其时间戳, 随 Checkpoint 持久化
+  private val aligned = new java.util.ArrayDeque[JTuple2[CRow, java.lang.Long]]()
+  private var alignedState: ListState[JTuple2[CRow, java.lang.Long]] = _
+  private var alignedSince: Long = 0L
+  // 处理暂存数据时使用的上下文, 时间戳取暂存时的值
+  private var alignedContext: ProcessFunction[CRow, CRow]#Context = _
+  private var alignedTimestamp: java.lang.Long = _
+  private var alignedDelegate: ProcessFunction[CRow, CRow]#Context = _
+
+  override def initializeState(context: FunctionInitializationContext): Unit = {
+    val stateStore = context.getOperatorStateStore
+    versionState = stateStore.getUnionListState(DynamicStateDescriptors.schemaVersionState())
+    calcState = stateStore.getUnionListState(DynamicStateDescriptors.calcState())
+    alignedState = stateStore.getListState(DynamicStateDescriptors.alignedRecordState())
+    if (context.isRestored) {
+      // 作业恢复: 使用最近一次收到的 Calc 代码, 不回退到编译期执行计划
+      calcState.get().asScala.foreach(restored => {
+        if (restored.f0 >= calcVersion) {
+          calcVersion = restored.f0
+          calcName = restored.f1
+          calcCode = restored.f2
+        }
+      })
+      schemaVersion = versionState.get().asScala.foldLeft(calcVersion)((v, restored) => Math.max(v, restored))
+      functionVersion = calcVersion
+      // 暂存数据由恢复后的最新函数处理
+      alignedState.get().asScala.foreach(restored => {
+        val timestamp = if (restored.f1 == Long.MinValue) null else restored.f1
+        aligned.add(JTuple2.of(restored.f0, timestamp))
+      })
+      alignedSince = System.currentTimeMillis()
+      LOG.info(s"Restored ProcessFunction: $calcName of schema version $calcVersion, " +
+        s"${aligned.size()} aligned records")
+    }
+  }
+
+  override def snapshotState(context: FunctionSnapshotContext): Unit = {
+    // 上游已持久化新版本的投影, 编译中的函数须在 Checkpoint 前生效, 否则恢复后新结构的数据交给旧函数
+    if (compiler.isPending) {
+      swapFunction()
+    }
+    versionState.clear()
+    versionState.add(schemaVersion)
+    calcState.clear()
+    calcState.add(JTuple3.of[java.lang.Long, String, String](calcVersion, calcName, calcCode))
+    alignedState.clear()
+    aligned.asScala.foreach(record => {
+      val timestamp: java.lang.Long = if (record.f1 == null) Long.MinValue else record.f1
+      alignedState.add(JTuple2.of(record.f0, timestamp))
+    })
+  }
 
   override def open(parameters: Configuration): Unit = {
     this.parameters = parameters
-    LOG.debug(s"Compiling ProcessFunction: $name \n\n Code:\n$code")
-    val clazz = compile(getRuntimeContext.getUserCodeClassLoader, name, code)
+    this.compiler = new DynamicCalcFunctionCompiler(
+      s"DynamicCalcCompiler-${getRuntimeContext.getTaskNameWithSubtasks}",
+      getRuntimeContext.getUserCodeClassLoader)
+
+    val clazz = compiler.compileNow(calcName, calcCode)
     LOG.debug("Instantiating ProcessFunction.")
-    function = clazz.newInstance()
-    FunctionUtils.setFunctionRuntimeContext(function, getRuntimeContext)
-    FunctionUtils.openFunction(function, parameters)
+    function = instantiate(clazz)
 
     this.cRowWrapper = new DynamicCRowWrappingCollector()
+    this.alignedContext = new Context {
+      override def timestamp(): java.lang.Long = alignedTimestamp
+
+      override def timerService(): TimerService = alignedDelegate.timerService()
+
+      override def output[X](outputTag: OutputTag[X], value: X): Unit = alignedDelegate.output(outputTag, value)
+    }
+
+    metrics = new DynamicOperatorMetrics(getRuntimeContext.getMetricGroup, functionVersion)
+    cRowWrapper.metrics = metrics
+    metrics.getGroup.gauge[java.lang.Long, Gauge[java.lang.Long]]("compileCount", new Gauge[java.lang.Long] {
+      override def getValue: java.lang.Long = compiler.getCompileCount
+    })
+    metrics.getGroup.gauge[java.lang.Long, Gauge[java.lang.Long]]("compileLatency", new Gauge[java.lang.Long] {
+      override def getValue: java.lang.Long = compiler.getLastCompileMillis
+    })
+    metrics.getGroup.gauge[java.lang.Long, Gauge[java.lang.Long]]("swapLag", new Gauge[java.lang.Long] {
+      override def getValue: java.lang.Long = lastSwapLagMillis
+    })
   }
 
   override def processElement(
@@ -46,51 +161,244 @@ class DynamicCRowProcessRunner(
       ctx: ProcessFunction[CRow, CRow]#Context,
       out: Collector[CRow]): Unit = {
     cRowWrapper.out = out
+    processRow(in, ctx)
+  }
+
+  /**
+    * 批量处理缓冲的数据, 批次内 UDF 的 before/after 开销按批次均摊.
+    *
+    * 生成的 Calc 代码逐行调用 eval, 无法调用 evalBatch, 因此以批次边界包裹逐行处理.
+    */
+  def processBatch(
+      buffer: DynamicCRowBuffer,
+      ctx: ProcessFunction[CRow, CRow]#Context,
+      out: Collector[CRow]): Unit = {
+    cRowWrapper.out = out
+    // 批次内可能切换函数, 仅结束已开始的批次
+    val scopes = batchScopes
+    scopes.foreach(_.beginBatch(buffer.size))
+    try {
+      var i = 0
+      while (i < buffer.size) {
+        processRow(buffer.select(i), ctx)
+        i += 1
+      }
+    } finally {
+      scopes.foreach(_.endBatch())
+    }
+  }
+
+  def hasAligned: Boolean = !aligned.isEmpty
+
+  /**
+    * 无输入数据时处理暂存数据, 由所在算子调用. waitCompile 为 true 时等待编译完成(发送 Watermark 及输入结束前),
+    * 否则仅在编译已完成时处理
+    */
+  def drainAligned(
+      ctx: ProcessFunction[CRow, CRow]#Context,
+      out: Collector[CRow],
+      waitCompile: Boolean): Unit = {
+    cRowWrapper.out = out
+    if (compiler.isReady || (waitCompile && compiler.isPending)) {
+      swapFunction()
+    }
+    if (!aligned.isEmpty && !compiler.isPending) {
+      flushAligned(ctx)
+    }
+  }
+
+  private def processRow(in: CRow, ctx: ProcessFunction[CRow, CRow]#Context): Unit = {
     cRowWrapper.setChange(in.change)
 
+    // 新函数在数据边界切换, 随后处理暂存的数据
+    if (compiler.isReady) {
+      swapFunction()
+    }
+    if (!aligned.isEmpty && !compiler.isPending) {
+      flushAligned(ctx)
+    }
+
     val value = in.row
-    val rowType = value.getField(0).asInstanceOf[String]
-    cRowWrapper.setRowType(rowType)
-
-    if (rowType.equals(RowDataType.SCHEMA.name())) {
-      val schema = value.getField(1).asInstanceOf[String]
-      FunctionUtils.closeFunction(function)
-      function = generateFunction(schema)
-      cRowWrapper.collect(schema)
-    } else if (rowType.equals(RowDataType.DATA.name())) {
-      val data = value.getField(1).asInstanceOf[String]
-      val columns = JsonUtils.fromJson(data, classOf[Row])
-      function.processElement(
-        columns,
-        ctx.asInstanceOf[ProcessFunction[Row, Row]#Context],
-        cRowWrapper)
+    val rowType = value.getField(DynamicRowTypeInfo.TYPE_INDEX).asInstanceOf[RowDataType]
+
+    // 数据行优先判断
+    if (rowType eq RowDataType.DATA) {
+      metrics.getRecordsIn.inc()
+      val version = value.getField(DynamicRowTypeInfo.VERSION_INDEX).asInstanceOf[java.lang.Long]
+      if (compiler.isPending && version >= compiler.pendingSchemaTuple.getVersion) {
+        align(in, ctx)
+      } else {
+        processData(in, version, ctx)
+      }
+    } else if (rowType eq RowDataType.SCHEMA) {
+      val schema = value.getField(DynamicRowTypeInfo.DATA_INDEX).asInstanceOf[SqlSchemaTuple]
+      if (schema.getVersion > schemaVersion) {
+        schemaVersion = schema.getVersion
+        if (schema.containsStreamNode(streamUniqueName)) {
+          val calc = schema.getStreamNodeSchema(streamUniqueName, classOf[SqlCalcSchema])
+          submitCalc(schema, calc, ctx)
+        }
+
+        // 向下发送其余节点的变更
+        val downstream = schema.without(streamUniqueName)
+        if (!downstream.isEmpty) {
+          cRowWrapper.setChange(in.change)
+          cRowWrapper.setRowType(RowDataType.SCHEMA)
+          cRowWrapper.setVersion(schema.getVersion)
+          cRowWrapper.collect(downstream)
+        }
+      }
     } else {
       throw new RuntimeException(s"Unsupported row type: $rowType" )
     }
   }
 
+  private def processData(
+      in: CRow,
+      version: java.lang.Long,
+      ctx: ProcessFunction[CRow, CRow]#Context): Unit = {
+    // 上游子任务尚未切换时发送的旧版本数据, 优先由上一版本函数处理
+    val current = if (version >= functionVersion) {
+      function
+    } else {
+      metrics.getStaleRecords.inc()
+      if (previousFunction != null) previousFunction else function
+    }
+
+    cRowWrapper.setChange(in.change)
+    cRowWrapper.setRowType(RowDataType.DATA)
+    cRowWrapper.setVersion(version)
+    val columns = in.row.getField(DynamicRowTypeInfo.DATA_INDEX).asInstanceOf[Row]
+    current.processElement(
+      columns,
+      ctx.asInstanceOf[ProcessFunction[Row, Row]#Context],
+      cRowWrapper)
+  }
+
+  /**
+    * 暂存新版本数据, 上游可能复用输入对象, 需复制
+    */
+  private def align(in: CRow, ctx: ProcessFunction[CRow, CRow]#Context): Unit = {
+    if (aligned.isEmpty) {
+      alignedSince = System.currentTimeMillis()
+    }
+    val timestamp = if (ctx == null) null else ctx.timestamp()
+    aligned.add(JTuple2.of(new CRow(DynamicRowSerializer.INSTANCE.copy(in.row), in.change), timestamp))
+    metrics.getAlignedRecords.inc()
+
+    if (aligned.size() >= maxAlignedRecords) {
+      LOG.info(s"Aligned records exceed $maxAlignedRecords, " +
+        s"waiting for schema version ${compiler.pendingSchemaTuple.getVersion} to compile.")
+      swapFunction()
+      flushAligned(ctx)
+    }
+  }
+
+  private def flushAligned(ctx: ProcessFunction[CRow, CRow]#Context): Unit = {
+    metrics.aligned(System.currentTimeMillis() - alignedSince)
+    // 输出时间戳与暂存数据一致, 处理完成后还原为当前数据的时间戳
+    val timestamped = cRowWrapper.out match {
+      case collector: TimestampedCollector[CRow] => collector
+      case _ => null
+    }
+
+    alignedDelegate = ctx
+    while (!aligned.isEmpty) {
+      val record = aligned.poll()
+      alignedTimestamp = record.f1
+      setOutputTimestamp(timestamped, record.f1)
+      processData(
+        record.f0,
+        record.f0.row.getField(DynamicRowTypeInfo.VERSION_INDEX).asInstanceOf[java.lang.Long],
+        alignedContext)
+    }
+    alignedTimestamp = null
+    alignedDelegate = null
+
+    if (ctx != null) {
+      setOutputTimestamp(timestamped, ctx.timestamp())
+    }
+  }
+
+  private def setOutputTimestamp(collector: TimestampedCollector[CRow], timestamp: java.lang.Long): Unit = {
+    if (collector == null) {
+      return
+    }
+    if (timestamp == null) {
+      collector.eraseTimestamp()
+    } else {
+      collector.setAbsoluteTimestamp(timestamp)
+    }
+  }
+
   override def getProducedType: TypeInformation[CRow] = {
-    val fieldNames = Array[String]("type", "data")
-    val fieldTypes = Array[TypeInformation[_]](Types.STRING, Types.STRING)
-    val rowType = new RowTypeInfo(fieldTypes, fieldNames)
-    CRowTypeInfo(rowType)
+    CRowTypeInfo(new DynamicRowTypeInfo)
   }
 
   override def close(): Unit = {
+    if (compiler != null) {
+      compiler.close()
+    }
+    FunctionUtils.closeFunction(previousFunction)
     FunctionUtils.closeFunction(function)
   }
 
-  private def generateFunction(schema: String) : ProcessFunction[Row, Row] = {
-    val schemaTuple = JsonUtils.fromJson(schema, classOf[SqlSchemaTuple])
-    val calc = schemaTuple.getStreamNodeSchema(streamUniqueName, classOf[SqlCalcSchema])
-    val name = calc.getName
-    val code = calc.getCode
-    LOG.info(s"Compiling ProcessFunction: $name \n\n Code:\n$code")
-    val clazz = compile(getRuntimeContext.getUserCodeClassLoader, name, code)
-    LOG.info("Instantiating ProcessFunction.")
+  private def submitCalc(
+      schema: SqlSchemaTuple,
+      calc: SqlCalcSchema,
+      ctx: ProcessFunction[CRow, CRow]#Context): Unit = {
+    metrics.announced(schema.getVersion)
+    // 上一版本尚未生效时等待其编译完成, 不能被新版本覆盖, 否则该版本的数据会交给旧函数
+    if (compiler.isPending) {
+      swapFunction()
+      if (!aligned.isEmpty) {
+        flushAligned(ctx)
+      }
+    }
+    // 代码未变化(如作业恢复后重发的执行计划), 无需重新编译
+    if (calc.getName == calcName && calc.getCode == calcCode) {
+      return
+    }
+    LOG.info(s"Compiling ProcessFunction: ${calc.getName} of schema version ${schema.getVersion}")
+    compiler.submit(schema, calc)
+  }
+
+  /**
+    * 切换为编译完成的新函数, 成功后才记录新代码(随 Checkpoint 持久化).
+    *
+    * 上游已按新版本投影并标记数据, 旧函数无法处理新结构的数据行, 编译或初始化失败时作业失败,
+    * 不保留旧函数继续输出错误结果
+    */
+  private def swapFunction(): Unit = {
+    val schema = compiler.pendingSchemaTuple
+    val calc = compiler.pendingCalcSchema
+    val lagMillis = compiler.pendingMillis
+    val newFunction = try {
+      instantiate(compiler.take())
+    } catch {
+      case e: Exception =>
+        throw new TableException(s"Failed to swap ProcessFunction: ${calc.getName} of schema version " +
+          s"${schema.getVersion}, rows of this version can't be processed by schema version $functionVersion.",
+          ExceptionUtils.stripExecutionException(e))
+    }
+    // 保留上一版本函数, 更早的版本关闭
+    FunctionUtils.closeFunction(previousFunction)
+    previousFunction = function
+    function = newFunction
+    functionVersion = schema.getVersion
+    calcVersion = schema.getVersion
+    calcName = calc.getName
+    calcCode = calc.getCode
+    lastSwapLagMillis = lagMillis
+    metrics.swapped(schema.getVersion)
+    LOG.info(s"Swapped ProcessFunction to schema version ${schema.getVersion}, lag $lagMillis ms.")
+  }
+
+  private def instantiate(clazz: Class[ProcessFunction[Row, Row]]): ProcessFunction[Row, Row] = {
     val function = clazz.newInstance()
     FunctionUtils.setFunctionRuntimeContext(function, getRuntimeContext)
     FunctionUtils.openFunction(function, parameters)
+    batchScopes = BatchEvalScopes.discover(function)
     function
   }
 
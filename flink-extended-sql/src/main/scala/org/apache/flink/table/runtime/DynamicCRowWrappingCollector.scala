@@ -1,27 +1,40 @@
 package org.apache.flink.table.runtime
 
-import org.apache.flink.table.util.JsonUtils
+import org.apache.flink.table.api.DynamicOperatorMetrics
+import org.apache.flink.table.types.{DynamicRowTypeInfo, RowDataType, SqlSchemaTuple}
 import org.apache.flink.types.Row
 
 class DynamicCRowWrappingCollector extends CRowWrappingCollector {
 
-  var outRow: Row = new Row(2)
+  var outRow: Row = new Row(DynamicRowTypeInfo.ARITY)
 
-  def setRowType(rowType: String): Unit = {
-    outRow.setField(0, rowType)
+  // 统计数据行输出, 为空时不统计
+  var metrics: DynamicOperatorMetrics = _
+
+  def setRowType(rowType: RowDataType): Unit = {
+    outRow.setField(DynamicRowTypeInfo.TYPE_INDEX, rowType)
+  }
+
+  def setVersion(version: java.lang.Long): Unit = {
+    outRow.setField(DynamicRowTypeInfo.VERSION_INDEX, version)
   }
 
-  def collect(schema: String): Unit = {
-    outRow.setField(1, schema)
+  def collect(schema: SqlSchemaTuple): Unit = {
+    outRow.setField(DynamicRowTypeInfo.DATA_INDEX, schema)
     outCRow.row = outRow
     out.collect(outCRow)
   }
 
   override def collect(record: Row): Unit = {
-    val data = JsonUtils.toJson(record)
-    outRow.setField(1, data)
+    outRow.setField(DynamicRowTypeInfo.DATA_INDEX, record)
     outCRow.row = outRow
+    if (metrics != null) {
+      metrics.sampleSerialization(outRow)
+    }
     out.collect(outCRow)
+    if (metrics != null) {
+      metrics.getRecordsOut.inc()
+    }
   }
 
   override def close(): Unit = {
@@ -0,0 +1,84 @@
+package org.apache.flink.table.runtime
+
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+import java.util.concurrent.{Callable, ExecutionException}
+
+import org.apache.flink.shaded.guava18.com.google.common.cache.{Cache, CacheBuilder}
+import org.apache.flink.shaded.guava18.com.google.common.util.concurrent.UncheckedExecutionException
+import org.apache.flink.util.StringUtils
+
+/**
+  * 进程级别的动态 Calc 函数类缓存, 相同代码在同一 TaskManager 上只编译一次.
+  *
+  * 编译结果引用用户 ClassLoader, 只能在同一作业内共享: 缓存按 ClassLoader 分区, 分区内以 类名 + 代码摘要 为键.
+  * 使用方通过 [[retain]] / [[release]] 登记, 作业在本进程的最后一个使用方关闭时移除分区, 不延长 ClassLoader 的生命周期.
+  */
+object DynamicCalcClassCache {
+
+  // 每个作业缓存的代码版本数上限
+  private val MAX_CACHED_CODES = 128
+
+  private class LoaderCache {
+    var references: Int = 0
+    val classes: Cache[String, Class[_]] = CacheBuilder
+      .newBuilder()
+      .maximumSize(MAX_CACHED_CODES)
+      .build()
+  }
+
+  // 用户 ClassLoader 未重写 equals, 按引用区分
+  private val LOADER_CACHES = new java.util.IdentityHashMap[ClassLoader, LoaderCache]()
+
+  def retain(classLoader: ClassLoader): Unit = LOADER_CACHES.synchronized {
+    var loaderCache = LOADER_CACHES.get(classLoader)
+    if (loaderCache == null) {
+      loaderCache = new LoaderCache
+      LOADER_CACHES.put(classLoader, loaderCache)
+    }
+    loaderCache.references += 1
+  }
+
+  def release(classLoader: ClassLoader): Unit = LOADER_CACHES.synchronized {
+    val loaderCache = LOADER_CACHES.get(classLoader)
+    if (loaderCache != null) {
+      loaderCache.references -= 1
+      if (loaderCache.references <= 0) {
+        LOADER_CACHES.remove(classLoader)
+        loaderCache.classes.invalidateAll()
+      }
+    }
+  }
+
+  /**
+    * 获取编译后的类, 并发请求同一代码时只有一个线程执行编译. ClassLoader 未登记时不缓存
+    */
+  def getOrCompile[T](
+      classLoader: ClassLoader,
+      name: String,
+      code: String,
+      compile: () => Class[T]): Class[T] = {
+    val loaderCache = LOADER_CACHES.synchronized {
+      LOADER_CACHES.get(classLoader)
+    }
+    if (loaderCache == null) {
+      return compile()
+    }
+
+    val key = s"$name#${digest(code)}"
+    try {
+      loaderCache.classes.get(key, new Callable[Class[_]] {
+        override def call(): Class[_] = compile()
+      }).asInstanceOf[Class[T]]
+    } catch {
+      case e @ (_: ExecutionException | _: UncheckedExecutionException) =>
+        throw e.getCause
+    }
+  }
+
+  private def digest(code: String): String = {
+    val md = MessageDigest.getInstance("SHA-256")
+    StringUtils.byteToHexString(md.digest(code.getBytes(StandardCharsets.UTF_8)))
+  }
+
+}
@@ -0,0 +1,53 @@
+package org.apache.flink.table.runtime
+
+import org.apache.flink.streaming.api.TimerService
+import org.apache.flink.streaming.api.functions.ProcessFunction
+import org.apache.flink.util.OutputTag
+
+/**
+  * 动态 Calc 代码使用的 [[ProcessFunction]] 上下文: 时间及侧输出委托给所在算子, 不支持定时器
+  */
+object DynamicCalcContexts {
+
+  trait Delegate {
+
+    def timestamp(): java.lang.Long
+
+    def currentProcessingTime(): Long
+
+    def currentWatermark(): Long
+
+    def output[X](outputTag: OutputTag[X], value: X): Unit =
+      throw new UnsupportedOperationException("Dynamic calc doesn't support side outputs.")
+
+  }
+
+  def create[I, O](owner: ProcessFunction[I, O], delegate: Delegate): ProcessFunction[I, O]#Context = {
+    val timers = new TimerService {
+      override def currentProcessingTime(): Long = delegate.currentProcessingTime()
+
+      override def currentWatermark(): Long = delegate.currentWatermark()
+
+      override def registerProcessingTimeTimer(time: Long): Unit =
+        throw new UnsupportedOperationException("Dynamic calc doesn't support timers.")
+
+      override def registerEventTimeTimer(time: Long): Unit =
+        throw new UnsupportedOperationException("Dynamic calc doesn't support timers.")
+
+      override def deleteProcessingTimeTimer(time: Long): Unit =
+        throw new UnsupportedOperationException("Dynamic calc doesn't support timers.")
+
+      override def deleteEventTimeTimer(time: Long): Unit =
+        throw new UnsupportedOperationException("Dynamic calc doesn't support timers.")
+    }
+
+    new owner.Context {
+      override def timestamp(): java.lang.Long = delegate.timestamp()
+
+      override def timerService(): TimerService = timers
+
+      override def output[X](outputTag: OutputTag[X], value: X): Unit = delegate.output(outputTag, value)
+    }
+  }
+
+}
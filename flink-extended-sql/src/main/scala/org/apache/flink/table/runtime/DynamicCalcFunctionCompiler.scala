@@ -0,0 +1,109 @@
+package org.apache.flink.table.runtime
+
+import java.util.concurrent.{Callable, ExecutorService, Executors, Future}
+
+import org.apache.flink.runtime.util.ExecutorThreadFactory
+import org.apache.flink.streaming.api.functions.ProcessFunction
+import org.apache.flink.table.codegen.Compiler
+import org.apache.flink.table.types.SqlSchemaTuple
+import org.apache.flink.table.types.schema.SqlCalcSchema
+import org.apache.flink.table.util.Logging
+import org.apache.flink.types.Row
+
+/**
+  * 在后台线程编译 [[SqlCalcSchema]] 代码, 编译期间算子继续使用旧函数处理数据.
+  * 编译结果经 [[DynamicCalcClassCache]] 在同一作业的子任务间共享, 关闭时释放对用户 ClassLoader 的登记.
+  *
+  * 非线程安全, 除编译本身外所有方法均在 Task 线程调用.
+  */
+class DynamicCalcFunctionCompiler(threadName: String, classLoader: ClassLoader)
+  extends Compiler[ProcessFunction[Row, Row]]
+  with Logging {
+
+  private val executor: ExecutorService =
+    Executors.newSingleThreadExecutor(new ExecutorThreadFactory(threadName))
+
+  DynamicCalcClassCache.retain(classLoader)
+  private var closed: Boolean = false
+
+  private var pending: Future[Class[ProcessFunction[Row, Row]]] = _
+  private var pendingSchema: SqlSchemaTuple = _
+  private var pendingCalc: SqlCalcSchema = _
+  // 收到执行计划的时间(ns)
+  private var pendingSince: Long = _
+
+  // 最近一次实际编译的耗时(ms), 命中缓存时不更新
+  @volatile private var lastCompileMillis: Long = 0L
+  // 实际编译次数, 不含命中缓存
+  @volatile private var compileCount: Long = 0L
+
+  def compileNow(name: String, code: String): Class[ProcessFunction[Row, Row]] = {
+    DynamicCalcClassCache.getOrCompile(classLoader, name, code, () => {
+      val start = System.nanoTime()
+      LOG.debug(s"Compiling ProcessFunction: $name \n\n Code:\n$code")
+      val clazz = compile(classLoader, name, code)
+      lastCompileMillis = (System.nanoTime() - start) / 1000000
+      compileCount += 1
+      clazz
+    })
+  }
+
+  /**
+    * 提交编译任务, 尚未完成的旧任务被新执行计划覆盖.
+    * 上游投影已切换时不能覆盖, 调用方须先 [[take]] 旧任务(见 [[DynamicCRowProcessRunner]])
+    */
+  def submit(schema: SqlSchemaTuple, calc: SqlCalcSchema): Unit = {
+    if (pending != null) {
+      LOG.info(s"Discard compiling schema version ${pendingSchema.getVersion}, " +
+        s"superseded by version ${schema.getVersion}")
+      // 不中断编译线程, 编译结果可能正被其他子任务共享
+      pending.cancel(false)
+    }
+    pendingSchema = schema
+    pendingCalc = calc
+    pendingSince = System.nanoTime()
+    pending = executor.submit(new Callable[Class[ProcessFunction[Row, Row]]] {
+      override def call(): Class[ProcessFunction[Row, Row]] =
+        compileNow(calc.getName, calc.getCode)
+    })
+  }
+
+  def isPending: Boolean = pending != null
+
+  def isReady: Boolean = pending != null && pending.isDone
+
+  def pendingSchemaTuple: SqlSchemaTuple = pendingSchema
+
+  def pendingCalcSchema: SqlCalcSchema = pendingCalc
+
+  /**
+    * 获取编译完成的函数类, 编译失败时抛出异常, 无论成败均清除编译任务
+    */
+  def take(): Class[ProcessFunction[Row, Row]] = {
+    try {
+      pending.get()
+    } finally {
+      pending = null
+      pendingSchema = null
+      pendingCalc = null
+    }
+  }
+
+  /**
+    * 从收到执行计划到当前的时间(ms)
+    */
+  def pendingMillis: Long = (System.nanoTime() - pendingSince) / 1000000
+
+  def getLastCompileMillis: Long = lastCompileMillis
+
+  def getCompileCount: Long = compileCount
+
+  def close(): Unit = {
+    executor.shutdownNow()
+    if (!closed) {
+      closed = true
+      DynamicCalcClassCache.release(classLoader)
+    }
+  }
+
+}
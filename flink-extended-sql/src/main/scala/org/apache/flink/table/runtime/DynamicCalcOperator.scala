@@ -0,0 +1,91 @@
+package org.apache.flink.table.runtime
+
+import org.apache.flink.streaming.api.functions.ProcessFunction
+import org.apache.flink.streaming.api.operators.{AbstractUdfStreamOperator, BoundedOneInput, ChainingStrategy, OneInputStreamOperator, TimestampedCollector}
+import org.apache.flink.streaming.api.watermark.Watermark
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback
+import org.apache.flink.table.runtime.types.CRow
+
+/**
+  * 逐条执行 [[DynamicCRowProcessRunner]], 并处理等待新函数生效的暂存数据:
+  *   1. 存在暂存数据时每 drainIntervalMillis 检查一次编译结果, 编译完成即输出, 不依赖后续输入
+  *   2. Watermark 发送前及输入结束时等待编译完成并输出, 暂存数据不会晚于 Watermark
+  */
+class DynamicCalcOperator(
+    runner: DynamicCRowProcessRunner,
+    drainIntervalMillis: Long)
+  extends AbstractUdfStreamOperator[CRow, DynamicCRowProcessRunner](runner)
+  with OneInputStreamOperator[CRow, CRow]
+  with BoundedOneInput
+  with ProcessingTimeCallback {
+
+  chainingStrategy = ChainingStrategy.ALWAYS
+
+  @transient private var collector: TimestampedCollector[CRow] = _
+  @transient private var context: ProcessFunction[CRow, CRow]#Context = _
+  @transient private var element: StreamRecord[CRow] = _
+
+  @transient private var timerRegistered: Boolean = false
+  @transient private var currentWatermark: Long = Long.MinValue
+
+  override def open(): Unit = {
+    super.open()
+    collector = new TimestampedCollector[CRow](output)
+    context = DynamicCalcContexts.create(userFunction, new DynamicCalcContexts.Delegate {
+      override def timestamp(): java.lang.Long =
+        if (element != null && element.hasTimestamp) element.getTimestamp else null
+
+      override def currentProcessingTime(): Long = getProcessingTimeService.getCurrentProcessingTime
+
+      override def currentWatermark(): Long = DynamicCalcOperator.this.currentWatermark
+    })
+  }
+
+  override def processElement(element: StreamRecord[CRow]): Unit = {
+    collector.setTimestamp(element)
+    this.element = element
+    try {
+      userFunction.processElement(element.getValue, context, collector)
+    } finally {
+      this.element = null
+    }
+    registerDrainTimer()
+  }
+
+  override def onProcessingTime(timestamp: Long): Unit = {
+    timerRegistered = false
+    drain(waitCompile = false)
+    registerDrainTimer()
+  }
+
+  override def processWatermark(mark: Watermark): Unit = {
+    drain(waitCompile = true)
+    currentWatermark = mark.getTimestamp
+    super.processWatermark(mark)
+  }
+
+  override def endInput(): Unit = {
+    drain(waitCompile = true)
+  }
+
+  override def close(): Unit = {
+    drain(waitCompile = true)
+    super.close()
+  }
+
+  private def drain(waitCompile: Boolean): Unit = {
+    if (userFunction.hasAligned) {
+      userFunction.drainAligned(context, collector, waitCompile)
+    }
+  }
+
+  private def registerDrainTimer(): Unit = {
+    if (!timerRegistered && userFunction.hasAligned) {
+      timerRegistered = true
+      val timeService = getProcessingTimeService
+      timeService.registerTimer(timeService.getCurrentProcessingTime + drainIntervalMillis, this)
+    }
+  }
+
+}
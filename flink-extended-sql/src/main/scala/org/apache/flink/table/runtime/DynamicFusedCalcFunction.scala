@@ -0,0 +1,270 @@
+package org.apache.flink.table.runtime
+
+import java.util.{ArrayList => JArrayList, List => JList, Map => JMap}
+
+import org.apache.flink.api.common.functions.util.FunctionUtils
+import org.apache.flink.api.common.state.{BroadcastState, ListState, MapStateDescriptor}
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2, Tuple3 => JTuple3}
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
+import org.apache.flink.configuration.Configuration
+import org.apache.flink.metrics.Gauge
+import org.apache.flink.runtime.state.{FunctionInitializationContext, FunctionSnapshotContext}
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction
+import org.apache.flink.streaming.api.functions.ProcessFunction
+import org.apache.flink.streaming.api.functions.co.BroadcastProcessFunction
+import org.apache.flink.table.api.{DynamicFieldProjection, DynamicOperatorMetrics, DynamicStateDescriptors}
+import org.apache.flink.table.runtime.types.CRow
+import org.apache.flink.table.types.SqlSchemaTuple
+import org.apache.flink.table.types.schema.{SqlCalcSchema, SqlScanSchema}
+import org.apache.flink.table.util.Logging
+import org.apache.flink.types.Row
+import org.apache.flink.util.{Collector, ExceptionUtils, OutputTag}
+
+import scala.collection.JavaConverters._
+
+/**
+  * Scan 字段投影, Calc 计算及 Sink 数据转换融合为一个算子, 数据行不再经过中间格式.
+  *
+  * 投影与 Calc 函数在新函数编译完成后一同切换.
+  */
+class DynamicFusedCalcFunction(
+    scanNodeName: String,
+    sourceFieldNames: JList[String],
+    selectFieldNames: JList[String],
+    calcNodeName: String,
+    name: String,
+    code: String,
+    returnType: TypeInformation[CRow])
+  extends BroadcastProcessFunction[CRow, SqlSchemaTuple, CRow]
+  with ResultTypeQueryable[CRow]
+  with CheckpointedFunction
+  with Logging {
+
+  private val sourceFieldNameToIndexes: JMap[String, Integer] =
+    DynamicFieldProjection.toFieldIndexes(sourceFieldNames)
+  private val selectFields: JList[String] = new JArrayList[String](selectFieldNames)
+
+  private var parameters: Configuration = _
+  private var stateDesc: MapStateDescriptor[String, JTuple2[JMap[String, Integer], JList[String]]] = _
+  // 已生效的投影规则, 在 Checkpoint 时写入, 与 Calc 代码保持一致
+  private var rulesState: BroadcastState[String, JTuple2[JMap[String, Integer], JList[String]]] = _
+  private var rules: JTuple2[JMap[String, Integer], JList[String]] = _
+
+  private var projection: DynamicFieldProjection = _
+  // 等待与新 Calc 函数一同生效的投影
+  private var pendingProjection: DynamicFieldProjection = _
+  private var pendingRules: JTuple2[JMap[String, Integer], JList[String]] = _
+  private var schemaVersion: Long = _
+  private var versionState: ListState[java.lang.Long] = _
+
+  // 已生效的 Calc 代码, 随 Checkpoint 持久化
+  private var calcState: ListState[JTuple3[java.lang.Long, String, String]] = _
+  private var calcVersion: Long = 0L
+  private var calcName: String = name
+  private var calcCode: String = code
+
+  private var function: ProcessFunction[Row, Row] = _
+  private var compiler: DynamicCalcFunctionCompiler = _
+  private var lastSwapLagMillis: Long = _
+  // 融合后算子间不再传输 DynamicRow, 不统计序列化
+  private var metrics: DynamicOperatorMetrics = _
+
+  private var cRowWrapper: CRowWrappingCollector = _
+  private var currentCtx: BroadcastProcessFunction[CRow, SqlSchemaTuple, CRow]#ReadOnlyContext = _
+  private var calcContext: ProcessFunction[Row, Row]#Context = _
+
+  override def initializeState(context: FunctionInitializationContext): Unit = {
+    val stateStore = context.getOperatorStateStore
+    stateDesc = DynamicStateDescriptors.scanRuleState()
+    versionState = stateStore.getUnionListState(DynamicStateDescriptors.schemaVersionState())
+    calcState = stateStore.getUnionListState(DynamicStateDescriptors.calcState())
+    rulesState = stateStore.getBroadcastState(stateDesc)
+
+    projection = DynamicFieldProjection.of(sourceFieldNameToIndexes, selectFields)
+    if (context.isRestored) {
+      // 作业恢复: 直接使用最近一次生效的规则, 不回退到编译期执行计划
+      rules = rulesState.get(scanNodeName)
+      if (rules != null) {
+        projection = DynamicFieldProjection.of(rules.f0, rules.f1)
+      }
+      calcState.get().asScala.foreach(restored => {
+        if (restored.f0 >= calcVersion) {
+          calcVersion = restored.f0
+          calcName = restored.f1
+          calcCode = restored.f2
+        }
+      })
+      schemaVersion = versionState.get().asScala.foldLeft(calcVersion)((v, restored) => Math.max(v, restored))
+      LOG.info(s"Restored ProcessFunction: $calcName of schema version $schemaVersion")
+    }
+  }
+
+  override def snapshotState(context: FunctionSnapshotContext): Unit = {
+    // 编译中的执行计划在 Checkpoint 前生效: 已收到的版本号随状态持久化, 恢复后不会再次收到该执行计划
+    if (compiler.isPending) {
+      swapFunction()
+    }
+    versionState.clear()
+    versionState.add(schemaVersion)
+    calcState.clear()
+    calcState.add(JTuple3.of[java.lang.Long, String, String](calcVersion, calcName, calcCode))
+    if (rules != null) {
+      rulesState.put(scanNodeName, rules)
+    }
+  }
+
+  override def open(parameters: Configuration): Unit = {
+    this.parameters = parameters
+
+    compiler = new DynamicCalcFunctionCompiler(
+      s"DynamicCalcCompiler-${getRuntimeContext.getTaskNameWithSubtasks}",
+      getRuntimeContext.getUserCodeClassLoader)
+    function = instantiate(compiler.compileNow(calcName, calcCode))
+
+    calcContext = createCalcContext(function)
+
+    metrics = new DynamicOperatorMetrics(getRuntimeContext.getMetricGroup, schemaVersion)
+    val recordsOut = metrics.getRecordsOut
+    cRowWrapper = new CRowWrappingCollector() {
+      override def collect(record: Row): Unit = {
+        super.collect(record)
+        recordsOut.inc()
+      }
+    }
+    metrics.getGroup.gauge[java.lang.Long, Gauge[java.lang.Long]]("compileCount", new Gauge[java.lang.Long] {
+      override def getValue: java.lang.Long = compiler.getCompileCount
+    })
+    metrics.getGroup.gauge[java.lang.Long, Gauge[java.lang.Long]]("compileLatency", new Gauge[java.lang.Long] {
+      override def getValue: java.lang.Long = compiler.getLastCompileMillis
+    })
+    metrics.getGroup.gauge[java.lang.Long, Gauge[java.lang.Long]]("swapLag", new Gauge[java.lang.Long] {
+      override def getValue: java.lang.Long = lastSwapLagMillis
+    })
+  }
+
+  override def processElement(
+      value: CRow,
+      ctx: BroadcastProcessFunction[CRow, SqlSchemaTuple, CRow]#ReadOnlyContext,
+      out: Collector[CRow]): Unit = {
+    // 新函数在数据边界切换
+    if (compiler.isReady) {
+      swapFunction()
+    }
+
+    metrics.getRecordsIn.inc()
+    currentCtx = ctx
+    cRowWrapper.out = out
+    cRowWrapper.setChange(value.change)
+    function.processElement(projection.project(value.row), calcContext, cRowWrapper)
+  }
+
+  override def processBroadcastElement(
+      schemaTuple: SqlSchemaTuple,
+      ctx: BroadcastProcessFunction[CRow, SqlSchemaTuple, CRow]#Context,
+      out: Collector[CRow]): Unit = {
+    // 忽略已处理过的版本
+    if (schemaTuple.getVersion <= schemaVersion) {
+      return
+    }
+    schemaVersion = schemaTuple.getVersion
+    if (schemaTuple.containsStreamNode(scanNodeName) || schemaTuple.containsStreamNode(calcNodeName)) {
+      metrics.announced(schemaVersion)
+    }
+
+    if (schemaTuple.containsStreamNode(calcNodeName)) {
+      val calc = schemaTuple.getStreamNodeSchema(calcNodeName, classOf[SqlCalcSchema])
+      submitCalc(schemaTuple, calc)
+    }
+
+    if (schemaTuple.containsStreamNode(scanNodeName)) {
+      val scan = schemaTuple.getStreamNodeSchema(scanNodeName, classOf[SqlScanSchema])
+      val fieldNameToIndexes = DynamicFieldProjection.toFieldIndexes(scan.getSourceFieldNames)
+      val newProjection = DynamicFieldProjection.of(fieldNameToIndexes, scan.getSelectFieldNames)
+      val newRules = JTuple2.of(fieldNameToIndexes, scan.getSelectFieldNames)
+      if (compiler.isPending) {
+        pendingProjection = newProjection
+        pendingRules = newRules
+      } else {
+        projection = newProjection
+        rules = newRules
+        metrics.swapped(schemaTuple.getVersion)
+      }
+    }
+  }
+
+  override def getProducedType: TypeInformation[CRow] = returnType
+
+  override def close(): Unit = {
+    if (compiler != null) {
+      compiler.close()
+    }
+    FunctionUtils.closeFunction(function)
+  }
+
+  private def submitCalc(schema: SqlSchemaTuple, calc: SqlCalcSchema): Unit = {
+    // 代码未变化(如作业恢复后重发的执行计划), 无需重新编译
+    if (calc.getName == calcName && calc.getCode == calcCode) {
+      return
+    }
+    LOG.info(s"Compiling ProcessFunction: ${calc.getName} of schema version ${schema.getVersion}")
+    compiler.submit(schema, calc)
+  }
+
+  /**
+    * 投影与新函数一同生效, 成功后才记录新代码及投影规则(随 Checkpoint 持久化).
+    * 编译或初始化失败时保留当前函数及投影, 避免作业恢复后重复编译同一代码而反复失败
+    */
+  private def swapFunction(): Unit = {
+    val schema = compiler.pendingSchemaTuple
+    val calc = compiler.pendingCalcSchema
+    val lagMillis = compiler.pendingMillis
+    val newFunction = try {
+      instantiate(compiler.take())
+    } catch {
+      case e: Exception =>
+        LOG.error(s"Failed to swap ProcessFunction: ${calc.getName} of schema version ${schema.getVersion}, " +
+          s"keep current function and projection.", ExceptionUtils.stripExecutionException(e))
+        pendingProjection = null
+        pendingRules = null
+        return
+    }
+    FunctionUtils.closeFunction(function)
+    function = newFunction
+    calcVersion = schema.getVersion
+    calcName = calc.getName
+    calcCode = calc.getCode
+    if (pendingProjection != null) {
+      projection = pendingProjection
+      rules = pendingRules
+      pendingProjection = null
+      pendingRules = null
+    }
+    lastSwapLagMillis = lagMillis
+    metrics.swapped(schema.getVersion)
+    LOG.info(s"Swapped ProcessFunction to schema version ${schema.getVersion}, lag $lagMillis ms.")
+  }
+
+  private def instantiate(clazz: Class[ProcessFunction[Row, Row]]): ProcessFunction[Row, Row] = {
+    val function = clazz.newInstance()
+    FunctionUtils.setFunctionRuntimeContext(function, getRuntimeContext)
+    FunctionUtils.openFunction(function, parameters)
+    function
+  }
+
+  /**
+    * Calc 代码使用的上下文, 委托给当前数据的 ReadOnlyContext
+    */
+  private def createCalcContext(owner: ProcessFunction[Row, Row]): ProcessFunction[Row, Row]#Context = {
+    DynamicCalcContexts.create(owner, new DynamicCalcContexts.Delegate {
+      override def timestamp(): java.lang.Long = currentCtx.timestamp()
+
+      override def currentProcessingTime(): Long = currentCtx.currentProcessingTime()
+
+      override def currentWatermark(): Long = currentCtx.currentWatermark()
+
+      override def output[X](outputTag: OutputTag[X], value: X): Unit = currentCtx.output(outputTag, value)
+    })
+  }
+
+}
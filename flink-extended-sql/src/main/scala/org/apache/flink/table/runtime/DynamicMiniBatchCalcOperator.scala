@@ -0,0 +1,131 @@
+package org.apache.flink.table.runtime
+
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.common.typeutils.TypeSerializer
+import org.apache.flink.streaming.api.functions.ProcessFunction
+import org.apache.flink.streaming.api.operators.{AbstractUdfStreamOperator, BoundedOneInput, ChainingStrategy, OneInputStreamOperator, TimestampedCollector}
+import org.apache.flink.streaming.api.watermark.Watermark
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback
+import org.apache.flink.table.runtime.types.CRow
+import org.apache.flink.table.types.{DynamicRowTypeInfo, RowDataType}
+
+/**
+  * Mini-batch 模式执行 [[DynamicCRowProcessRunner]]: 缓冲 batchSize 条数据或 latencyMillis 后批量处理.
+  *
+  * 以下情况立即输出缓冲数据, 保证语义与逐条处理一致:
+  *   1. 执行计划变更, 新计划尽快生效
+  *   2. Checkpoint Barrier 发送前
+  *   3. Watermark 发送前
+  *   4. 输入结束及算子关闭
+  *
+  * 等待新函数生效的暂存数据同 [[DynamicCalcOperator]]: 定时检查编译结果, Watermark 发送前, 输入结束及算子关闭时
+  * 等待编译完成后输出.
+  */
+class DynamicMiniBatchCalcOperator(
+    runner: DynamicCRowProcessRunner,
+    inputType: TypeInformation[CRow],
+    batchSize: Int,
+    latencyMillis: Long)
+  extends AbstractUdfStreamOperator[CRow, DynamicCRowProcessRunner](runner)
+  with OneInputStreamOperator[CRow, CRow]
+  with BoundedOneInput
+  with ProcessingTimeCallback {
+
+  chainingStrategy = ChainingStrategy.ALWAYS
+
+  @transient private var collector: TimestampedCollector[CRow] = _
+  @transient private var buffer: DynamicCRowBuffer = _
+  @transient private var context: ProcessFunction[CRow, CRow]#Context = _
+  // 开启对象复用时, 上游可能复用输入对象, 缓冲前需复制
+  @transient private var inputSerializer: TypeSerializer[CRow] = _
+
+  @transient private var timerRegistered: Boolean = false
+  @transient private var currentWatermark: Long = Long.MinValue
+
+  override def open(): Unit = {
+    super.open()
+    collector = new TimestampedCollector[CRow](output)
+    buffer = new DynamicCRowBuffer(batchSize, collector)
+    context = createContext()
+    if (getExecutionConfig.isObjectReuseEnabled) {
+      inputSerializer = inputType.createSerializer(getExecutionConfig)
+    }
+  }
+
+  override def processElement(element: StreamRecord[CRow]): Unit = {
+    val row = if (inputSerializer == null) element.getValue else inputSerializer.copy(element.getValue)
+    buffer.add(row, element)
+
+    val rowType = row.row.getField(DynamicRowTypeInfo.TYPE_INDEX)
+    if (buffer.isFull || (rowType ne RowDataType.DATA)) {
+      flush()
+    }
+    registerTimer()
+  }
+
+  override def onProcessingTime(timestamp: Long): Unit = {
+    timerRegistered = false
+    flush()
+    drain(waitCompile = false)
+    registerTimer()
+  }
+
+  override def processWatermark(mark: Watermark): Unit = {
+    flush()
+    drain(waitCompile = true)
+    currentWatermark = mark.getTimestamp
+    super.processWatermark(mark)
+  }
+
+  override def prepareSnapshotPreBarrier(checkpointId: Long): Unit = {
+    super.prepareSnapshotPreBarrier(checkpointId)
+    flush()
+  }
+
+  override def endInput(): Unit = {
+    flush()
+    drain(waitCompile = true)
+  }
+
+  override def close(): Unit = {
+    flush()
+    drain(waitCompile = true)
+    super.close()
+  }
+
+  private def registerTimer(): Unit = {
+    if (!timerRegistered && (!buffer.isEmpty || userFunction.hasAligned)) {
+      timerRegistered = true
+      val timeService = getProcessingTimeService
+      timeService.registerTimer(timeService.getCurrentProcessingTime + latencyMillis, this)
+    }
+  }
+
+  private def drain(waitCompile: Boolean): Unit = {
+    if (userFunction.hasAligned) {
+      userFunction.drainAligned(context, collector, waitCompile)
+    }
+  }
+
+  private def flush(): Unit = {
+    if (!buffer.isEmpty) {
+      try {
+        userFunction.processBatch(buffer, context, collector)
+      } finally {
+        buffer.clear()
+      }
+    }
+  }
+
+  private def createContext(): ProcessFunction[CRow, CRow]#Context = {
+    DynamicCalcContexts.create(userFunction, new DynamicCalcContexts.Delegate {
+      override def timestamp(): java.lang.Long = buffer.currentTimestamp
+
+      override def currentProcessingTime(): Long = getProcessingTimeService.getCurrentProcessingTime
+
+      override def currentWatermark(): Long = DynamicMiniBatchCalcOperator.this.currentWatermark
+    })
+  }
+
+}
@@ -1,24 +1,51 @@
 package org.apache.flink.table.runtime
 
-import org.apache.flink.api.common.functions.RichMapFunction
+import org.apache.flink.api.common.functions.RichFlatMapFunction
 import org.apache.flink.configuration.Configuration
+import org.apache.flink.table.api.DynamicOperatorMetrics
 import org.apache.flink.table.runtime.types.CRow
-import org.apache.flink.table.util.JsonUtils
+import org.apache.flink.table.types.{DynamicRowTypeInfo, RowDataType}
 import org.apache.flink.types.Row
+import org.apache.flink.util.Collector
 
-class DynamicSqlSinkMapFunction extends RichMapFunction[CRow, CRow] {
+/**
+  * 还原数据行交给 TableSink, 控制行(执行计划)根据头部类型直接丢弃
+  */
+class DynamicSqlSinkMapFunction extends RichFlatMapFunction[CRow, CRow] {
 
   @transient var outCRow: CRow = _
 
+  @transient private var metrics: DynamicOperatorMetrics = _
+  // 已收到数据行的最新执行计划版本, 增大即上游已切换
+  @transient private var dataVersion: Long = _
 
   override def open(parameters: Configuration): Unit = {
     outCRow = new CRow(null, true)
+    metrics = new DynamicOperatorMetrics(getRuntimeContext.getMetricGroup, 0L)
+    dataVersion = 0L
   }
 
-  override def map(in: CRow): CRow = {
+  override def flatMap(in: CRow, out: Collector[CRow]): Unit = {
+    if (in.row.getField(DynamicRowTypeInfo.TYPE_INDEX) ne RowDataType.DATA) {
+      return
+    }
+
+    metrics.getRecordsIn.inc()
+    // 输入经网络传输时的序列化开销
+    metrics.sampleSerialization(in.row)
+    val version: Long = in.row.getField(DynamicRowTypeInfo.VERSION_INDEX).asInstanceOf[java.lang.Long]
+    if (version > dataVersion) {
+      dataVersion = version
+      metrics.swapped(version)
+    } else if (version < dataVersion) {
+      // 上游子任务间存在版本偏差
+      metrics.getStaleRecords.inc()
+    }
+
     outCRow.change = in.change
-    outCRow.row = JsonUtils.fromJson(in.row.getField(1).asInstanceOf[String], classOf[Row])
-    outCRow
+    outCRow.row = in.row.getField(DynamicRowTypeInfo.DATA_INDEX).asInstanceOf[Row]
+    out.collect(outCRow)
+    metrics.getRecordsOut.inc()
   }
 
 }
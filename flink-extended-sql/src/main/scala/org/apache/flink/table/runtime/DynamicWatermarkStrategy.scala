@@ -0,0 +1,79 @@
+package org.apache.flink.table.runtime
+
+import java.time.Duration
+
+import org.apache.flink.api.common.eventtime.{TimestampAssigner, TimestampAssignerSupplier, WatermarkGenerator, WatermarkGeneratorSupplier, WatermarkOutput, WatermarkStrategy, WatermarksWithIdleness, Watermark => EventTimeWatermark}
+import org.apache.flink.table.api.TableException
+import org.apache.flink.table.runtime.types.CRow
+import org.apache.flink.table.sources.wmstrategies.{PeriodicWatermarkAssigner, PunctuatedWatermarkAssigner, WatermarkStrategy => TableWatermarkStrategy}
+
+/**
+  * 按 TableSource 声明的水位策略生成水位, 时间戳取自 rowtime 字段.
+  *
+  * idleTimeoutMillis 大于 0 时, 子任务超时无数据则标记为空闲, 不阻塞下游水位推进.
+  */
+class DynamicWatermarkStrategy(
+    strategy: TableWatermarkStrategy,
+    rowtimeFieldIdx: Int,
+    idleTimeoutMillis: Long)
+  extends WatermarkStrategy[CRow] {
+
+  strategy match {
+    case _: PeriodicWatermarkAssigner | _: PunctuatedWatermarkAssigner =>
+    case _ =>
+      throw new TableException(s"Unsupported watermark strategy: ${strategy.getClass.getName}")
+  }
+
+  override def createWatermarkGenerator(
+      context: WatermarkGeneratorSupplier.Context): WatermarkGenerator[CRow] = {
+    val generator = strategy match {
+      case periodic: PeriodicWatermarkAssigner => new PeriodicRowtimeWatermarkGenerator(periodic)
+      case punctuated: PunctuatedWatermarkAssigner => new PunctuatedRowtimeWatermarkGenerator(punctuated)
+    }
+    if (idleTimeoutMillis > 0) {
+      new WatermarksWithIdleness[CRow](generator, Duration.ofMillis(idleTimeoutMillis))
+    } else {
+      generator
+    }
+  }
+
+  override def createTimestampAssigner(
+      context: TimestampAssignerSupplier.Context): TimestampAssigner[CRow] = {
+    new TimestampAssigner[CRow] {
+      override def extractTimestamp(element: CRow, recordTimestamp: Long): Long =
+        element.row.getField(rowtimeFieldIdx).asInstanceOf[Long]
+    }
+  }
+
+}
+
+private class PeriodicRowtimeWatermarkGenerator(assigner: PeriodicWatermarkAssigner)
+  extends WatermarkGenerator[CRow] {
+
+  override def onEvent(event: CRow, eventTimestamp: Long, output: WatermarkOutput): Unit = {
+    assigner.nextTimestamp(eventTimestamp)
+  }
+
+  override def onPeriodicEmit(output: WatermarkOutput): Unit = {
+    val watermark = assigner.getWatermark
+    if (watermark != null) {
+      output.emitWatermark(new EventTimeWatermark(watermark.getTimestamp))
+    }
+  }
+
+}
+
+private class PunctuatedRowtimeWatermarkGenerator(assigner: PunctuatedWatermarkAssigner)
+  extends WatermarkGenerator[CRow] {
+
+  override def onEvent(event: CRow, eventTimestamp: Long, output: WatermarkOutput): Unit = {
+    val watermark = assigner.getWatermark(event.row, eventTimestamp)
+    if (watermark != null) {
+      output.emitWatermark(new EventTimeWatermark(watermark.getTimestamp))
+    }
+  }
+
+  override def onPeriodicEmit(output: WatermarkOutput): Unit = {
+  }
+
+}
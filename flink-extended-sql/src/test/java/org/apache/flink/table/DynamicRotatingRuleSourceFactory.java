@@ -0,0 +1,136 @@
+package org.apache.flink.table;
+
+import static java.lang.String.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.calcite.shaded.com.google.common.collect.Lists;
+import org.apache.flink.table.api.rule.DynamicSqlRuleSource;
+import org.apache.flink.table.api.rule.DynamicSqlRuleSourceFactory;
+import org.apache.flink.table.types.schema.SqlCalcSchema;
+import org.apache.flink.table.types.schema.SqlScanSchema;
+import org.apache.flink.table.types.schema.SqlSchema;
+
+/**
+ * 测试规则源: 按固定间隔轮换 code0..3.txt
+ * */
+public class DynamicRotatingRuleSourceFactory implements DynamicSqlRuleSourceFactory {
+
+  public static final String TYPE = "rotating";
+
+  @Override
+  public String ruleSourceType() {
+    return TYPE;
+  }
+
+  @Override
+  public DynamicSqlRuleSource createRuleSource(Map<String, String> properties) {
+    return new RotatingRuleSource(Long.parseLong(properties.getOrDefault("interval-ms", "10000")));
+  }
+
+  private static class RotatingRuleSource implements DynamicSqlRuleSource {
+
+    private final long intervalMillis;
+
+    private int nums;
+    private long nextMillis;
+
+    RotatingRuleSource(long intervalMillis) {
+      this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public void open() {
+      this.nums = 0;
+      this.nextMillis = System.currentTimeMillis() + intervalMillis;
+    }
+
+    @Override
+    public Map<String, SqlSchema> poll(long timeout, TimeUnit unit) throws Exception {
+      long waitMillis = nextMillis - System.currentTimeMillis();
+      if (waitMillis > unit.toMillis(timeout)) {
+        unit.sleep(timeout);
+        return null;
+      }
+      if (waitMillis > 0) {
+        TimeUnit.MILLISECONDS.sleep(waitMillis);
+      }
+      nextMillis += intervalMillis;
+      return create(nums++ % 4);
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+  }
+
+  private static Map<String, SqlSchema> create(int i) {
+    SqlScanSchema scanSchema = new SqlScanSchema(
+        Lists.newArrayList("uid", "uname", "sex", "age", "action", "timestamp"),
+        getSelectFields(i)
+    );
+
+    SqlCalcSchema calcSchema = new SqlCalcSchema(getCodeName(i), getCode(i));
+
+    Map<String, SqlSchema> map = new HashMap<>();
+    map.put("DynamicStreamTableSourceScan", scanSchema);
+    map.put("DynamicDataStreamCalc#DynamicStreamTableSourceScan", calcSchema);
+    return map;
+  }
+
+  private static List<String> getSelectFields(int i) {
+    switch (i) {
+      case 0:
+      case 1:
+        return Lists.newArrayList("uname", "age", "action", "timestamp", "sex");
+
+      case 2:
+      case 3:
+        return Lists.newArrayList("uname", "action", "timestamp", "sex", "age");
+
+      default:
+        throw new RuntimeException("");
+    }
+  }
+
+  public static String getCode(int i) {
+    try (InputStream in = DynamicRotatingRuleSourceFactory.class.getResourceAsStream(format("/code%d.txt", i))) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        out.write(buffer, 0, len);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static String getCodeName(int i) {
+    switch (i) {
+      case 0:
+        return "DynamicDataStreamCalcRule$36";
+
+      case 1:
+        return "DynamicDataStreamCalcRule$44";
+
+      case 2:
+        return "DynamicDataStreamCalcRule$58";
+
+      case 3:
+        return "DynamicDataStreamCalcRule$69";
+
+      default:
+        throw new RuntimeException("");
+    }
+  }
+
+}
@@ -3,6 +3,7 @@ package org.apache.flink.table;
 import org.apache.calcite.tools.RuleSet;
 import org.apache.calcite.tools.RuleSets;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.table.api.DynamicSqlOptions;
 import org.apache.flink.table.api.EnvironmentSettings;
 import org.apache.flink.table.api.TableConfig;
 import org.apache.flink.table.api.bridge.java.StreamTableEnvironment;
@@ -39,6 +40,9 @@ public class DynamicSqlBootstrap {
 
     tableConfig.setPlannerConfig(calciteConfig);
 
+    // 执行计划规则源
+    tableConfig.getConfiguration().setString(DynamicSqlOptions.RULE_SOURCE_TYPE, DynamicRotatingRuleSourceFactory.TYPE);
+
     DynamicStreamCatalog catalog = new DynamicStreamCatalog("extended", "stream");
     tableEnv.registerCatalog("extended", catalog);
     tableEnv.useCatalog("extended");
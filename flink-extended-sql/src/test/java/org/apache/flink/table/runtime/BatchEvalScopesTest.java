@@ -0,0 +1,98 @@
+package org.apache.flink.table.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import org.apache.flink.streaming.api.functions.ProcessFunction;
+import org.apache.flink.table.DynamicRotatingRuleSourceFactory;
+import org.apache.flink.types.Row;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 以 code0..3.txt 的生成代码校验 {@link BatchEvalScopes#discover}
+ * */
+public class BatchEvalScopesTest {
+
+  private static final String OUT_FIELD = "  final org.apache.flink.types.Row out =";
+
+  // 模拟生成代码中的 UDF 字段: 同一实例被多个字段引用, 未初始化及非 BatchEvalScope 的字段
+  private static final String UDF_FIELDS =
+      "  public final " + CountingBatchEvalScope.class.getName() + " function_a = new "
+          + CountingBatchEvalScope.class.getName() + "();\n"
+      + "  private final com.sdu.flink.table.functions.enhance.BatchEvalScope function_b = function_a;\n"
+      + "  private " + CountingBatchEvalScope.class.getName() + " function_c;\n"
+      + "  private final " + CountingBatchEvalScope.class.getName() + " function_d = new "
+          + CountingBatchEvalScope.class.getName() + "();\n"
+      + "  private final java.lang.Object function_e = new java.lang.Object();\n"
+      + "  private static final " + CountingBatchEvalScope.class.getName() + " function_f = new "
+          + CountingBatchEvalScope.class.getName() + "();\n";
+
+  private DynamicCalcFunctionCompiler compiler;
+
+  @Before
+  public void setUp() {
+    compiler = new DynamicCalcFunctionCompiler("BatchEvalScopesTest", getClass().getClassLoader());
+  }
+
+  @After
+  public void tearDown() {
+    compiler.close();
+  }
+
+  @Test
+  public void testGeneratedCodeWithoutUdf() throws Exception {
+    for (int i = 0; i < 4; ++i) {
+      ProcessFunction<Row, Row> function = instantiate(
+          DynamicRotatingRuleSourceFactory.getCodeName(i), DynamicRotatingRuleSourceFactory.getCode(i));
+      assertEquals("code" + i, 0, BatchEvalScopes.discover(function).length);
+    }
+  }
+
+  @Test
+  public void testGeneratedCodeWithUdf() throws Exception {
+    for (int i = 0; i < 4; ++i) {
+      String code = DynamicRotatingRuleSourceFactory.getCode(i);
+      assertEquals("code" + i, 1, count(code, OUT_FIELD));
+      ProcessFunction<Row, Row> function = instantiate(
+          DynamicRotatingRuleSourceFactory.getCodeName(i), code.replace(OUT_FIELD, UDF_FIELDS + OUT_FIELD));
+
+      // 非静态且已初始化的 BatchEvalScope 字段, 同一实例只返回一次
+      Object[] scopes = BatchEvalScopes.discover(function);
+      assertEquals("code" + i, 2, scopes.length);
+      assertTrue(contains(scopes, field(function, "function_a")));
+      assertTrue(contains(scopes, field(function, "function_d")));
+    }
+  }
+
+  private ProcessFunction<Row, Row> instantiate(String name, String code) throws Exception {
+    return compiler.compileNow(name, code).newInstance();
+  }
+
+  private static Object field(Object function, String name) throws Exception {
+    Field field = function.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    return field.get(function);
+  }
+
+  // 字段遍历顺序不确定, 按引用查找
+  private static boolean contains(Object[] scopes, Object scope) {
+    for (Object s : scopes) {
+      if (s == scope) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int count(String code, String part) {
+    int count = 0;
+    for (int index = code.indexOf(part); index >= 0; index = code.indexOf(part, index + part.length())) {
+      ++count;
+    }
+    return count;
+  }
+
+}
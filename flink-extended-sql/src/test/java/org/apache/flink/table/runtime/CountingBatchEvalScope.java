@@ -0,0 +1,23 @@
+package org.apache.flink.table.runtime;
+
+import com.sdu.flink.table.functions.enhance.BatchEvalScope;
+
+/**
+ * 作为生成代码中的 UDF 字段, 记录批次边界的调用次数
+ * */
+public class CountingBatchEvalScope implements BatchEvalScope {
+
+  public int beginCount;
+  public int endCount;
+
+  @Override
+  public void beginBatch(int size) {
+    ++beginCount;
+  }
+
+  @Override
+  public void endBatch() {
+    ++endCount;
+  }
+
+}
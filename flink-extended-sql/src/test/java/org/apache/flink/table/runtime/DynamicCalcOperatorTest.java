@@ -0,0 +1,173 @@
+package org.apache.flink.table.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.runtime.types.CRow;
+import org.apache.flink.table.runtime.types.CRowTypeInfo;
+import org.apache.flink.table.types.DynamicRowTypeInfo;
+import org.apache.flink.table.types.RowDataType;
+import org.apache.flink.table.types.SqlSchemaTuple;
+import org.apache.flink.table.types.schema.SqlCalcSchema;
+import org.apache.flink.types.Row;
+import org.junit.Test;
+
+/**
+ * 校验 {@link DynamicCRowProcessRunner} 的版本对齐: 暂存新版本数据, 切换函数后输出, 旧版本数据由上一版本函数处理.
+ *
+ * 编译在后台线程完成, 数据行可能被暂存也可能在切换后直接处理, 两种情况的输出一致, 测试只校验输出.
+ * */
+public class DynamicCalcOperatorTest {
+
+  static final String STREAM = "DynamicDataStreamCalc#DynamicStreamTableSourceScan";
+
+  // 版本 1 的投影: [name]
+  static final String V1_NAME = "DynamicCalcV1$1";
+  static final String V1_CODE = calcCode(V1_NAME, "v1", 0);
+  // 版本 2 的投影: [id, name]
+  private static final String V2_NAME = "DynamicCalcV2$2";
+  private static final String V2_CODE = calcCode(V2_NAME, "v2", 1);
+
+  @Test
+  public void testAlignedRowsSwappedAndFlushed() throws Exception {
+    OneInputStreamOperatorTestHarness<CRow, CRow> harness = createHarness(100);
+    harness.open();
+    try {
+      harness.processElement(data(1L, "a"), 1L);
+      harness.processElement(schema(2L, V2_NAME, V2_CODE), 2L);
+      harness.processElement(data(2L, 7, "b"), 3L);
+      harness.processElement(data(2L, 8, "c"), 4L);
+      // Watermark 发送前等待编译完成并输出暂存数据
+      harness.processWatermark(new Watermark(10L));
+      // 尚未切换的上游子任务发送的旧版本数据, 由上一版本函数处理
+      harness.processElement(data(1L, "d"), 11L);
+
+      assertEquals(Arrays.asList("v1:a@1", "v2:b@3", "v2:c@4", "W10", "v1:d@11"), outputs(harness));
+    } finally {
+      harness.close();
+    }
+  }
+
+  @Test
+  public void testAlignedRecordsOverflow() throws Exception {
+    OneInputStreamOperatorTestHarness<CRow, CRow> harness = createHarness(1);
+    harness.open();
+    try {
+      harness.processElement(schema(2L, V2_NAME, V2_CODE), 1L);
+      // 暂存数据达到上限时等待编译完成, 不依赖 Watermark 或后续数据
+      harness.processElement(data(2L, 7, "b"), 2L);
+      harness.processElement(data(2L, 8, "c"), 3L);
+
+      assertEquals(Arrays.asList("v2:b@2", "v2:c@3"), outputs(harness));
+    } finally {
+      harness.close();
+    }
+  }
+
+  @Test
+  public void testSnapshotAndRestore() throws Exception {
+    OneInputStreamOperatorTestHarness<CRow, CRow> harness = createHarness(100);
+    harness.open();
+    harness.processElement(data(1L, "a"), 1L);
+    harness.processElement(schema(2L, V2_NAME, V2_CODE), 2L);
+    harness.processElement(data(2L, 7, "b"), 3L);
+    OperatorSubtaskState snapshot = harness.snapshot(1L, 5L);
+    List<String> outputs = outputs(harness);
+    harness.close();
+
+    // 作业恢复: 使用 Checkpoint 中的 Calc 代码, 未输出的暂存数据随状态恢复
+    OneInputStreamOperatorTestHarness<CRow, CRow> restored = createHarness(100);
+    restored.initializeState(snapshot);
+    restored.open();
+    try {
+      restored.processWatermark(new Watermark(10L));
+      restored.processElement(data(2L, 9, "c"), 11L);
+      outputs.addAll(outputs(restored));
+
+      assertEquals(Arrays.asList("v1:a@1", "v2:b@3", "W10", "v2:c@11"), outputs);
+    } finally {
+      restored.close();
+    }
+  }
+
+  @Test
+  public void testSwapFailure() throws Exception {
+    OneInputStreamOperatorTestHarness<CRow, CRow> harness = createHarness(100);
+    harness.open();
+    try {
+      harness.processElement(data(1L, "a"), 1L);
+      harness.processElement(schema(2L, "DynamicCalcBroken$3", "public class DynamicCalcBroken$3 {"), 2L);
+      try {
+        harness.processElement(data(2L, 7, "b"), 3L);
+        harness.processWatermark(new Watermark(10L));
+        fail("Swap failure should fail the task");
+      } catch (TableException e) {
+        // 新版本数据不能交给旧函数处理
+      }
+      assertEquals(Collections.singletonList("v1:a@1"), outputs(harness));
+    } finally {
+      harness.close();
+    }
+  }
+
+  private static OneInputStreamOperatorTestHarness<CRow, CRow> createHarness(int maxAlignedRecords)
+      throws Exception {
+    DynamicCRowProcessRunner runner = new DynamicCRowProcessRunner(STREAM, V1_NAME, V1_CODE, maxAlignedRecords);
+    OneInputStreamOperatorTestHarness<CRow, CRow> harness =
+        new OneInputStreamOperatorTestHarness<>(new DynamicCalcOperator(runner, 10L));
+    // 输出行被复用, 按序列化器拷贝
+    harness.setup(new CRowTypeInfo(new DynamicRowTypeInfo()).createSerializer(new ExecutionConfig()));
+    return harness;
+  }
+
+  static List<String> outputs(OneInputStreamOperatorTestHarness<CRow, CRow> harness) {
+    List<String> outputs = new ArrayList<>();
+    for (Object output : harness.getOutput()) {
+      if (output instanceof Watermark) {
+        outputs.add("W" + ((Watermark) output).getTimestamp());
+      } else {
+        @SuppressWarnings("unchecked")
+        StreamRecord<CRow> record = (StreamRecord<CRow>) output;
+        Row result = (Row) record.getValue().row().getField(DynamicRowTypeInfo.DATA_INDEX);
+        outputs.add(result.getField(0) + ":" + result.getField(1) + "@" + record.getTimestamp());
+      }
+    }
+    return outputs;
+  }
+
+  static CRow data(long version, Object... fields) {
+    return new CRow(Row.of(RowDataType.DATA, version, Row.of(fields)), true);
+  }
+
+  private static CRow schema(long version, String name, String code) {
+    SqlSchemaTuple schemaTuple = new SqlSchemaTuple(version,
+        Collections.singletonMap(STREAM, new SqlCalcSchema(name, code)));
+    return new CRow(Row.of(RowDataType.SCHEMA, version, schemaTuple), true);
+  }
+
+  /**
+   * 输出 [label, 第 nameIndex 个字段]
+   * */
+  private static String calcCode(String name, String label, int nameIndex) {
+    return "public class " + name + " extends org.apache.flink.streaming.api.functions.ProcessFunction {\n"
+        + "  @Override\n"
+        + "  public void processElement(Object _in1, "
+        + "org.apache.flink.streaming.api.functions.ProcessFunction.Context ctx, "
+        + "org.apache.flink.util.Collector c) throws Exception {\n"
+        + "    org.apache.flink.types.Row in1 = (org.apache.flink.types.Row) _in1;\n"
+        + "    c.collect(org.apache.flink.types.Row.of(\"" + label + "\", in1.getField(" + nameIndex + ")));\n"
+        + "  }\n"
+        + "}\n";
+  }
+
+}
@@ -0,0 +1,45 @@
+package org.apache.flink.table.runtime;
+
+import static org.apache.flink.table.runtime.DynamicCalcOperatorTest.STREAM;
+import static org.apache.flink.table.runtime.DynamicCalcOperatorTest.V1_CODE;
+import static org.apache.flink.table.runtime.DynamicCalcOperatorTest.V1_NAME;
+import static org.apache.flink.table.runtime.DynamicCalcOperatorTest.data;
+import static org.apache.flink.table.runtime.DynamicCalcOperatorTest.outputs;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.table.runtime.types.CRow;
+import org.apache.flink.table.runtime.types.CRowTypeInfo;
+import org.apache.flink.table.types.DynamicRowTypeInfo;
+import org.junit.Test;
+
+/**
+ * 校验 {@link DynamicMiniBatchCalcOperator} 在输入结束时输出缓冲数据
+ * */
+public class DynamicMiniBatchCalcOperatorTest {
+
+  @Test
+  public void testEndInputFlushesBuffer() throws Exception {
+    CRowTypeInfo typeInfo = new CRowTypeInfo(new DynamicRowTypeInfo());
+    DynamicCRowProcessRunner runner = new DynamicCRowProcessRunner(STREAM, V1_NAME, V1_CODE, 100);
+    // 批次及延迟均不会触发输出
+    DynamicMiniBatchCalcOperator operator = new DynamicMiniBatchCalcOperator(runner, typeInfo, 100, 3_600_000L);
+    OneInputStreamOperatorTestHarness<CRow, CRow> harness = new OneInputStreamOperatorTestHarness<>(operator);
+    harness.setup(typeInfo.createSerializer(new ExecutionConfig()));
+    harness.open();
+    try {
+      harness.processElement(data(1L, "a"), 1L);
+      harness.processElement(data(1L, "b"), 2L);
+      assertEquals(Collections.emptyList(), outputs(harness));
+
+      operator.endInput();
+      assertEquals(Arrays.asList("v1:a@1", "v1:b@2"), outputs(harness));
+    } finally {
+      harness.close();
+    }
+  }
+
+}
@@ -0,0 +1,119 @@
+package org.apache.flink.table.types;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.apache.flink.api.common.typeutils.SerializerTestBase;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.types.Row;
+import org.apache.flink.types.StringValue;
+import org.junit.Test;
+
+/**
+ * {@link DynamicRowSerializer} 的 DATA 行序列化: 各类型字段, 嵌套 Row 及 null 字段
+ * */
+public class DynamicRowSerializerTest extends SerializerTestBase<Row> {
+
+  @Override
+  protected TypeSerializer<Row> createSerializer() {
+    return DynamicRowSerializer.INSTANCE;
+  }
+
+  @Override
+  protected int getLength() {
+    return -1;
+  }
+
+  @Override
+  protected Class<Row> getTypeClass() {
+    return Row.class;
+  }
+
+  @Override
+  protected Row[] getTestData() {
+    Timestamp timestamp = new Timestamp(1_590_000_000_123L);
+    timestamp.setNanos(123_456_789);
+
+    // 字段数超过 127, arity 占两个字节
+    Row wide = new Row(200);
+    wide.setField(0, "first");
+    wide.setField(199, 199L);
+
+    return new Row[]{
+        data(1L, Row.of("a", 1, 2L, 3.0d, true)),
+        data(2L, Row.of((short) 1, (byte) 2, 1.5f, new BigDecimal("-123.4500"), timestamp,
+            new Date(1_590_000_000_000L), new Time(3_600_000L), new byte[]{1, 2, 3})),
+        data(3L, Row.of("outer", Row.of(null, "inner", Row.of((Object) null)), null)),
+        data(4L, Row.of(new ArrayList<>(Arrays.asList("generic", "list")))),
+        data(5L, wide),
+        data(Long.MAX_VALUE, new Row(0)),
+    };
+  }
+
+  @Test
+  public void testDataRowLayout() throws IOException {
+    DataOutputSerializer output = new DataOutputSerializer(64);
+    DynamicRowSerializer.INSTANCE.serialize(data(7L, Row.of("a", null, Row.of(1))), output);
+
+    DataInputDeserializer input = new DataInputDeserializer(output.getSharedBuffer(), 0, output.length());
+    // type | version | arity | [tag | value] ...
+    assertEquals(RowDataType.DATA.ordinal(), input.readByte());
+    assertEquals(7L, input.readLong());
+    assertEquals(3, input.readByte());
+    // STRING
+    assertEquals(8, input.readByte());
+    assertEquals("a", StringValue.readString(input));
+    // NULL
+    assertEquals(0, input.readByte());
+    // ROW: arity | INT
+    assertEquals(14, input.readByte());
+    assertEquals(1, input.readByte());
+    assertEquals(4, input.readByte());
+    assertEquals(1, input.readInt());
+    assertEquals(0, input.available());
+  }
+
+  @Test
+  public void testCopyIsDeep() {
+    byte[] bytes = {1, 2, 3};
+    Row nested = Row.of("inner", bytes);
+    Row from = data(1L, Row.of(nested, null));
+
+    Row copy = DynamicRowSerializer.INSTANCE.copy(from);
+    nested.setField(0, "changed");
+    bytes[0] = 0;
+
+    Row copied = (Row) ((Row) copy.getField(DynamicRowTypeInfo.DATA_INDEX)).getField(0);
+    assertEquals("inner", copied.getField(0));
+    assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) copied.getField(1));
+    assertEquals(RowDataType.DATA, copy.getField(DynamicRowTypeInfo.TYPE_INDEX));
+    assertEquals(1L, copy.getField(DynamicRowTypeInfo.VERSION_INDEX));
+  }
+
+  @Test
+  public void testDuplicateAndSnapshot() {
+    // 无状态, duplicate 返回自身
+    assertSame(DynamicRowSerializer.INSTANCE, DynamicRowSerializer.INSTANCE.duplicate());
+
+    TypeSerializerSnapshot<Row> snapshot = DynamicRowSerializer.INSTANCE.snapshotConfiguration();
+    assertSame(DynamicRowSerializer.INSTANCE, snapshot.restoreSerializer());
+    assertTrue(snapshot.resolveSchemaCompatibility(DynamicRowSerializer.INSTANCE).isCompatibleAsIs());
+  }
+
+  private static Row data(long version, Row fields) {
+    return Row.of(RowDataType.DATA, version, fields);
+  }
+
+}
@@ -0,0 +1,99 @@
+package org.apache.flink.table.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.typeutils.runtime.kryo.KryoSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.table.types.schema.SqlCalcSchema;
+import org.apache.flink.table.types.schema.SqlScanSchema;
+import org.apache.flink.table.types.schema.SqlSchema;
+import org.apache.flink.types.Row;
+import org.junit.Test;
+
+/**
+ * 执行计划经广播流(Kryo)及算子间二进制行(DynamicRowSerializer)传输后保持一致
+ * */
+public class SqlSchemaTupleSerializationTest {
+
+  private static final String SCAN_NODE = "DynamicStreamTableSourceScan";
+  private static final String CALC_NODE = "DynamicDataStreamCalc#DynamicStreamTableSourceScan";
+
+  @Test
+  public void testKryoRoundTrip() throws IOException {
+    TypeSerializer<SqlSchemaTuple> serializer = TypeInformation.of(SqlSchemaTuple.class)
+        .createSerializer(new ExecutionConfig());
+    assertTrue(serializer instanceof KryoSerializer);
+
+    SqlSchemaTuple schemaTuple = createSchemaTuple();
+    assertSchemaTuple(schemaTuple, roundTrip(serializer, schemaTuple));
+
+    // diff / without 生成的执行计划同样经广播流发送
+    SqlSchemaTuple remains = schemaTuple.without(SCAN_NODE);
+    assertSchemaTuple(remains, roundTrip(serializer, remains));
+    SqlSchemaTuple changes = schemaTuple.diff(new SqlSchemaTuple(1L, Collections.emptyMap()));
+    assertSchemaTuple(changes, roundTrip(serializer, changes));
+  }
+
+  @Test
+  public void testKryoRoundTripWithImmutableFieldNames() throws IOException {
+    TypeSerializer<SqlSchemaTuple> serializer = TypeInformation.of(SqlSchemaTuple.class)
+        .createSerializer(new ExecutionConfig());
+
+    Map<String, SqlSchema> schemas = Collections.singletonMap(SCAN_NODE, new SqlScanSchema(
+        Collections.unmodifiableList(Arrays.asList("uid", "uname", "age")),
+        Collections.singletonList("uid")));
+    SqlSchemaTuple schemaTuple = new SqlSchemaTuple(3L, schemas);
+    assertSchemaTuple(schemaTuple, roundTrip(serializer, schemaTuple));
+  }
+
+  @Test
+  public void testDynamicRowRoundTrip() throws IOException {
+    SqlSchemaTuple schemaTuple = createSchemaTuple();
+    Row row = new Row(DynamicRowTypeInfo.ARITY);
+    row.setField(DynamicRowTypeInfo.TYPE_INDEX, RowDataType.SCHEMA);
+    row.setField(DynamicRowTypeInfo.VERSION_INDEX, schemaTuple.getVersion());
+    row.setField(DynamicRowTypeInfo.DATA_INDEX, schemaTuple);
+
+    Row restored = roundTrip(DynamicRowSerializer.INSTANCE, row);
+    assertEquals(RowDataType.SCHEMA, restored.getField(DynamicRowTypeInfo.TYPE_INDEX));
+    assertEquals(schemaTuple.getVersion(), restored.getField(DynamicRowTypeInfo.VERSION_INDEX));
+    assertSchemaTuple(schemaTuple, (SqlSchemaTuple) restored.getField(DynamicRowTypeInfo.DATA_INDEX));
+  }
+
+  private static SqlSchemaTuple createSchemaTuple() {
+    Map<String, SqlSchema> schemas = new HashMap<>();
+    schemas.put(SCAN_NODE, new SqlScanSchema(
+        Arrays.asList("uid", "uname", "sex", "age", "action", "timestamp"),
+        Arrays.asList("uid", "age")));
+    schemas.put(CALC_NODE, new SqlCalcSchema("DataStreamCalcRule$1", "public class DataStreamCalcRule$1 {}"));
+    return new SqlSchemaTuple(2L, schemas);
+  }
+
+  private static void assertSchemaTuple(SqlSchemaTuple expected, SqlSchemaTuple actual) {
+    assertEquals(expected.getVersion(), actual.getVersion());
+    assertEquals(expected.getStreamNodes(), actual.getStreamNodes());
+    for (String stream : expected.getStreamNodes()) {
+      assertEquals(
+          expected.getStreamNodeSchema(stream, SqlSchema.class),
+          actual.getStreamNodeSchema(stream, SqlSchema.class));
+    }
+  }
+
+  private static <T> T roundTrip(TypeSerializer<T> serializer, T value) throws IOException {
+    DataOutputSerializer output = new DataOutputSerializer(256);
+    serializer.serialize(value, output);
+    DataInputDeserializer input = new DataInputDeserializer(output.getSharedBuffer(), 0, output.length());
+    return serializer.deserialize(input);
+  }
+
+}
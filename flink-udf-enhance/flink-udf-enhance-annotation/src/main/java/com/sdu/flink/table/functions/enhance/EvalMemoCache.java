@@ -0,0 +1,237 @@
+package com.sdu.flink.table.functions.enhance;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * eval 结果缓存, 由 {@link ScalarFunctionEnhance#memoize()} 生成的代码使用, 按访问顺序 LRU 淘汰.
+ *
+ * 每个函数实例(子任务)独享, 非线程安全. 查询使用可复用的探测键, 命中时不分配内存.
+ * */
+public class EvalMemoCache {
+
+  // 未命中标记, 区分缓存的 null 结果
+  public static final Object MISS = new Object();
+
+  private final Map<Key, Object> cache;
+  private final Key probe = new Key();
+
+  // 仅由 Task 线程更新, 指标线程读取到的值可能略有延迟
+  private long hitCount;
+  private long missCount;
+
+  public EvalMemoCache(int maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("memoize size should be positive: " + maximumSize);
+    }
+    this.cache = new LinkedHashMap<Key, Object>(Math.min(maximumSize, 1024), 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+        return size() > maximumSize;
+      }
+    };
+  }
+
+  /**
+   * 重置并返回探测键, id 区分 eval 重载
+   * */
+  public Key probe(int id) {
+    return probe.reset(id);
+  }
+
+  /**
+   * @return 缓存结果, 未命中时返回 {@link #MISS}
+   * */
+  public Object get(Key key) {
+    Object value = cache.get(key);
+    if (value == null && !cache.containsKey(key)) {
+      ++missCount;
+      return MISS;
+    }
+    ++hitCount;
+    return value;
+  }
+
+  public <T> T put(Key key, T value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public boolean put(Key key, boolean value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public byte put(Key key, byte value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public short put(Key key, short value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public char put(Key key, char value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public int put(Key key, int value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public long put(Key key, long value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public float put(Key key, float value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public double put(Key key, double value) {
+    cache.put(key, value);
+    return value;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  /**
+   * 参数键: 数值参数存放在 long[] 中, 按位比较及散列, 不装箱
+   * */
+  public static final class Key {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int id;
+    private int arity;
+    // 按位标记数值参数
+    private long primitiveMask;
+    private long[] primitives;
+    private Object[] references;
+    private int hash;
+
+    private Key() {
+      this.primitives = new long[INITIAL_CAPACITY];
+      this.references = new Object[INITIAL_CAPACITY];
+    }
+
+    private Key(Key other) {
+      this.id = other.id;
+      this.arity = other.arity;
+      this.primitiveMask = other.primitiveMask;
+      this.primitives = Arrays.copyOf(other.primitives, other.arity);
+      this.references = Arrays.copyOf(other.references, other.arity);
+      this.hash = other.hash;
+    }
+
+    private Key reset(int id) {
+      // 释放上一次查询的参数引用
+      Arrays.fill(references, 0, arity, null);
+      this.id = id;
+      this.arity = 0;
+      this.primitiveMask = 0L;
+      this.hash = id;
+      return this;
+    }
+
+    public Key arg(boolean value) {
+      return primitive(value ? 1L : 0L);
+    }
+
+    public Key arg(int value) {
+      return primitive(value);
+    }
+
+    public Key arg(long value) {
+      return primitive(value);
+    }
+
+    public Key arg(double value) {
+      return primitive(Double.doubleToLongBits(value));
+    }
+
+    public Key arg(Object value) {
+      ensureCapacity();
+      references[arity] = value;
+      primitives[arity] = 0L;
+      hash = 31 * hash + (value == null ? 0 : value.hashCode());
+      ++arity;
+      return this;
+    }
+
+    /**
+     * 未命中时复制探测键作为缓存键, 避免嵌套调用 eval 覆盖探测键
+     * */
+    public Key copy() {
+      return new Key(this);
+    }
+
+    private Key primitive(long value) {
+      ensureCapacity();
+      primitives[arity] = value;
+      references[arity] = null;
+      primitiveMask |= 1L << arity;
+      hash = 31 * hash + mix(value);
+      ++arity;
+      return this;
+    }
+
+    private void ensureCapacity() {
+      if (arity == 64) {
+        throw new UnsupportedOperationException("memoize supports at most 64 arguments");
+      }
+      if (arity == primitives.length) {
+        primitives = Arrays.copyOf(primitives, arity * 2);
+        references = Arrays.copyOf(references, arity * 2);
+      }
+    }
+
+    private static int mix(long value) {
+      long h = value * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      if (id != that.id || arity != that.arity || hash != that.hash || primitiveMask != that.primitiveMask) {
+        return false;
+      }
+      for (int i = 0; i < arity; ++i) {
+        if (primitives[i] != that.primitives[i] || !Objects.equals(references[i], that.references[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+  }
+
+}
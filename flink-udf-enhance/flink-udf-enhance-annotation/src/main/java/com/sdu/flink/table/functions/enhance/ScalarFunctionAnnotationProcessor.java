@@ -6,18 +6,28 @@ import static com.sdu.flink.table.functions.enhance.utils.ProcessorUtils.getName
 import static com.sdu.flink.table.functions.enhance.utils.ProcessorUtils.memberAccess;
 
 import com.sun.tools.javac.api.JavacTrees;
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.TypeTag;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCArrayTypeTree;
 import com.sun.tools.javac.tree.JCTree.JCBinary;
+import com.sun.tools.javac.tree.JCTree.JCBlock;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
 import com.sun.tools.javac.tree.JCTree.JCExpressionStatement;
 import com.sun.tools.javac.tree.JCTree.JCIf;
+import com.sun.tools.javac.tree.JCTree.JCLambda;
 import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCPrimitiveTypeTree;
 import com.sun.tools.javac.tree.JCTree.JCReturn;
 import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
 import com.sun.tools.javac.tree.JCTree.Tag;
+import com.sun.tools.javac.tree.TreeCopier;
 import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.tree.TreeTranslator;
 import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Name;
 import com.sun.tools.javac.util.Names;
 import java.util.HashSet;
 import java.util.Set;
@@ -28,10 +38,20 @@ import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
 import javax.tools.Diagnostic.Kind;
 
 public class ScalarFunctionAnnotationProcessor extends AbstractProcessor {
 
+  // 生成的局部变量名, 避免与用户代码冲突
+  private static final String START_NANOS = "$startNanos";
+  private static final String MEMO = "$memo";
+  private static final String MEMO_KEY = "$memoKey";
+  private static final String MEMO_VALUE = "$memoValue";
+  private static final String MEMO_RESULT = "$memoResult";
+
+  private static final String MEMO_CACHE_CLASS = EvalMemoCache.class.getName();
+
   // 编译时期打日志
   private Messager messager;
   // 抽象语法树AST
@@ -60,9 +80,10 @@ public class ScalarFunctionAnnotationProcessor extends AbstractProcessor {
     elements.forEach((Element e) -> {
       // 获取当前元素的JCTree对象
       JCTree jcTree = javacTrees.getTree(e);
+      ScalarFunctionEnhance enhance = e.getAnnotation(ScalarFunctionEnhance.class);
 
       // 遍历JCTree节点
-      jcTree.accept(new JCTreeNodeTranslator());
+      jcTree.accept(new JCTreeNodeTranslator(enhance.memoize(), enhance.memoizeSize()));
 
     });
 
@@ -83,15 +104,35 @@ public class ScalarFunctionAnnotationProcessor extends AbstractProcessor {
 
   private class JCTreeNodeTranslator extends TreeTranslator {
 
+    private final boolean memoize;
+    private final int memoizeSize;
+    // eval 重载编号, 区分缓存键
+    private int evalId;
+
+    JCTreeNodeTranslator(boolean memoize, int memoizeSize) {
+      this.memoize = memoize;
+      this.memoizeSize = memoizeSize;
+    }
+
     @Override
     public void visitMethodDef(JCMethodDecl jcMethodDecl) {
       String methodName = jcMethodDecl.name.toString();
       if (methodName.equals("eval")) {
         messager.printMessage(Kind.NOTE, "Start enhance 'eval' method ...");
 
-        // 执行before()方法
+        // 结果缓存包裹原方法体, 计时及异常处理包裹在外层
+        if (memoize) {
+          if (isMemoizable(jcMethodDecl)) {
+            jcMethodDecl.body = memoizeBody(jcMethodDecl, evalId++);
+          } else {
+            messager.printMessage(Kind.WARNING, "Skip memoize 'eval' method with array or varargs parameters: " + jcMethodDecl.params);
+          }
+        }
+
+        // 执行before()方法, 开始时间保存在局部变量中, 嵌套调用eval互不影响
         String beforeMethod = "this.before";
-        JCExpressionStatement beforeStatement = treeMaker.Exec(
+        JCVariableDecl startNanos = createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
+            START_NANOS, treeMaker.TypeIdent(TypeTag.LONG),
             treeMaker.Apply(
                 // 输入参数类型
                 List.nil(),
@@ -101,7 +142,7 @@ public class ScalarFunctionAnnotationProcessor extends AbstractProcessor {
                 List.nil()
             ));
 
-        // 执行after()方法
+        // 执行after(startNanos)方法
         String afterMethod = "this.after";
         JCExpressionStatement afterStatement = treeMaker.Exec(
             treeMaker.Apply(
@@ -110,7 +151,7 @@ public class ScalarFunctionAnnotationProcessor extends AbstractProcessor {
                 // 方法名
                 memberAccess(treeMaker, names, afterMethod),
                 // 输入参数
-                List.nil()
+                List.of(treeMaker.Ident(startNanos.name))
             ));
 
         // 执行异常处理
@@ -156,9 +197,17 @@ public class ScalarFunctionAnnotationProcessor extends AbstractProcessor {
         // 方法体Finally
         JCTree.JCBlock finallyBlock = treeMaker.Block(0, List.of(afterStatement));
 
+        // 熔断期间直接返回默认值, 不执行方法体
+        JCIf shortCircuit = treeMaker.If(
+            treeMaker.Apply(List.nil(), memberAccess(treeMaker, names, "this.shortCircuit"), List.nil()),
+            treeMaker.Return(treeMaker.Apply(List.nil(),
+                memberAccess(treeMaker, names, "this." + defaultValueMethodName), List.nil())),
+            null);
+
         // 更改方法执行体
         jcMethodDecl.body = treeMaker.Block(0, List.of(
-            beforeStatement,
+            shortCircuit,
+            startNanos,
             // 添加try{...} catch() {...} finally {...}
             treeMaker.Try(jcMethodDecl.body,
                 List.of(treeMaker.Catch(createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
@@ -166,10 +215,190 @@ public class ScalarFunctionAnnotationProcessor extends AbstractProcessor {
                 finallyBlock
         )));
         System.out.println(">>>>>>>>>>>>>>>Code<<<<<<<<<<<<<<\n" + jcMethodDecl.getBody().toString());
+      } else if (methodName.equals("evalBatch")) {
+        messager.printMessage(Kind.NOTE, "Start enhance 'evalBatch' method ...");
+        JCVariableDecl size = jcMethodDecl.params.isEmpty() ? null : jcMethodDecl.params.last();
+        if (size != null && size.vartype instanceof JCPrimitiveTypeTree
+            && ((JCPrimitiveTypeTree) size.vartype).getPrimitiveTypeKind() == TypeKind.INT) {
+          jcMethodDecl.body = batchBody(jcMethodDecl, size);
+        } else {
+          messager.printMessage(Kind.WARNING, "Skip enhance 'evalBatch' method without trailing int size parameter: " + jcMethodDecl.params);
+        }
       }
       super.visitMethodDef(jcMethodDecl);
     }
 
+    /**
+     * 生成代码:
+     *
+     * <pre>
+     * this.beginEvalBatch(size);
+     * try {
+     *   ...
+     * } catch (Exception e) {
+     *   this.onException(e);
+     *   throw e;
+     * } finally {
+     *   this.endEvalBatch();
+     * }
+     * </pre>
+     * */
+    private JCBlock batchBody(JCMethodDecl jcMethodDecl, JCVariableDecl size) {
+      JCExpressionStatement beginBatch = treeMaker.Exec(treeMaker.Apply(List.nil(),
+          memberAccess(treeMaker, names, "this.beginEvalBatch"), List.of(treeMaker.Ident(size.name))));
+      JCExpressionStatement endBatch = treeMaker.Exec(treeMaker.Apply(List.nil(),
+          memberAccess(treeMaker, names, "this.endEvalBatch"), List.nil()));
+      JCExpressionStatement onException = treeMaker.Exec(treeMaker.Apply(List.nil(),
+          memberAccess(treeMaker, names, "this.onException"), List.of(treeMaker.Ident(getNameFromString(names, "e")))));
+
+      // 批次无法逐行返回默认值, 异常计数后抛出, 由调用方决定是否逐行重试
+      JCBlock catchBlock = treeMaker.Block(0, List.of(
+          onException,
+          treeMaker.Throw(treeMaker.Ident(getNameFromString(names, "e")))));
+
+      return treeMaker.Block(0, List.of(
+          beginBatch,
+          treeMaker.Try(jcMethodDecl.body,
+              List.of(treeMaker.Catch(createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
+                  "e", memberAccess(treeMaker, names, "java.lang.Exception"), null), catchBlock)),
+              treeMaker.Block(0, List.of(endBatch)))));
+    }
+
+    private boolean isMemoizable(JCMethodDecl jcMethodDecl) {
+      if ((jcMethodDecl.mods.flags & Flags.VARARGS) != 0 || jcMethodDecl.restype == null) {
+        return false;
+      }
+      for (JCVariableDecl param : jcMethodDecl.params) {
+        if (param.vartype instanceof JCArrayTypeTree) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * 生成代码:
+     *
+     * <pre>
+     * EvalMemoCache $memo = this.getMemoCache(size);
+     * EvalMemoCache.Key $memoKey = $memo.probe(id).arg(p1).arg(p2);
+     * Object $memoValue = $memo.get($memoKey);
+     * if ($memoValue != EvalMemoCache.MISS) {
+     *   return (R) $memoValue;
+     * }
+     * $memoKey = $memoKey.copy();
+     * { 原方法体, return expr 改写为 { R $memoResult = expr; return $memo.put($memoKey, $memoResult); } }
+     * </pre>
+     * */
+    private JCBlock memoizeBody(JCMethodDecl jcMethodDecl, int id) {
+      JCVariableDecl memo = createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
+          MEMO, memberAccess(treeMaker, names, MEMO_CACHE_CLASS),
+          treeMaker.Apply(List.nil(), memberAccess(treeMaker, names, "this.getMemoCache"),
+              List.of(treeMaker.Literal(memoizeSize))));
+
+      JCExpression key = treeMaker.Apply(List.nil(),
+          treeMaker.Select(treeMaker.Ident(memo.name), getNameFromString(names, "probe")),
+          List.of(treeMaker.Literal(id)));
+      for (JCVariableDecl param : jcMethodDecl.params) {
+        key = treeMaker.Apply(List.nil(),
+            treeMaker.Select(key, getNameFromString(names, "arg")),
+            List.of(treeMaker.Ident(param.name)));
+      }
+      JCVariableDecl memoKey = createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
+          MEMO_KEY, memberAccess(treeMaker, names, MEMO_CACHE_CLASS + ".Key"), key);
+
+      JCVariableDecl memoValue = createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
+          MEMO_VALUE, memberAccess(treeMaker, names, "java.lang.Object"),
+          treeMaker.Apply(List.nil(),
+              treeMaker.Select(treeMaker.Ident(memo.name), getNameFromString(names, "get")),
+              List.of(treeMaker.Ident(memoKey.name))));
+
+      JCIf hit = treeMaker.If(
+          treeMaker.Binary(Tag.NE, treeMaker.Ident(memoValue.name), memberAccess(treeMaker, names, MEMO_CACHE_CLASS + ".MISS")),
+          treeMaker.Return(treeMaker.TypeCast(getBoxedType(jcMethodDecl.restype), treeMaker.Ident(memoValue.name))),
+          null);
+
+      JCExpressionStatement copyKey = treeMaker.Exec(treeMaker.Assign(
+          treeMaker.Ident(memoKey.name),
+          treeMaker.Apply(List.nil(),
+              treeMaker.Select(treeMaker.Ident(memoKey.name), getNameFromString(names, "copy")),
+              List.nil())));
+
+      JCBlock body = new MemoReturnTranslator(memo.name, memoKey.name, jcMethodDecl.restype)
+          .translate(jcMethodDecl.body);
+      return treeMaker.Block(0, List.of(memo, memoKey, memoValue, hit, copyKey, body));
+    }
+
+    private JCExpression getBoxedType(JCExpression restype) {
+      if (!(restype instanceof JCPrimitiveTypeTree)) {
+        return restype;
+      }
+      switch (((JCPrimitiveTypeTree) restype).getPrimitiveTypeKind()) {
+        case BOOLEAN:
+          return memberAccess(treeMaker, names, "java.lang.Boolean");
+        case BYTE:
+          return memberAccess(treeMaker, names, "java.lang.Byte");
+        case SHORT:
+          return memberAccess(treeMaker, names, "java.lang.Short");
+        case CHAR:
+          return memberAccess(treeMaker, names, "java.lang.Character");
+        case INT:
+          return memberAccess(treeMaker, names, "java.lang.Integer");
+        case LONG:
+          return memberAccess(treeMaker, names, "java.lang.Long");
+        case FLOAT:
+          return memberAccess(treeMaker, names, "java.lang.Float");
+        case DOUBLE:
+          return memberAccess(treeMaker, names, "java.lang.Double");
+        default:
+          throw new UnsupportedOperationException("Unsupported memoize result type: " + restype);
+      }
+    }
+
+  }
+
+  /**
+   * 改写 eval 方法体中的 return 语句, 不进入 Lambda 及内部类.
+   *
+   * 返回值先赋给返回类型的局部变量: 赋值转换与 return 一致(如 short 方法 return 1 的常量收窄),
+   * 且 put 按返回类型选择重载, 结果可直接返回
+   * */
+  private class MemoReturnTranslator extends TreeTranslator {
+
+    private final Name memo;
+    private final Name memoKey;
+    private final JCExpression restype;
+
+    MemoReturnTranslator(Name memo, Name memoKey, JCExpression restype) {
+      this.memo = memo;
+      this.memoKey = memoKey;
+      this.restype = restype;
+    }
+
+    @Override
+    public void visitReturn(JCReturn jcReturn) {
+      if (jcReturn.expr == null) {
+        result = jcReturn;
+        return;
+      }
+      JCVariableDecl memoResult = createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
+          MEMO_RESULT, new TreeCopier<Void>(treeMaker).copy(restype), translate(jcReturn.expr));
+      jcReturn.expr = treeMaker.Apply(List.nil(),
+          treeMaker.Select(treeMaker.Ident(memo), getNameFromString(names, "put")),
+          List.of(treeMaker.Ident(memoKey), treeMaker.Ident(memoResult.name)));
+      result = treeMaker.Block(0, List.of(memoResult, jcReturn));
+    }
+
+    @Override
+    public void visitLambda(JCLambda jcLambda) {
+      result = jcLambda;
+    }
+
+    @Override
+    public void visitClassDef(JCClassDecl jcClassDecl) {
+      result = jcClassDecl;
+    }
+
   }
 
 }
@@ -9,4 +9,14 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.SOURCE)
 public @interface ScalarFunctionEnhance {
 
+  /**
+   * 是否缓存 eval 结果, 仅适用于相同参数返回相同结果的函数
+   * */
+  boolean memoize() default false;
+
+  /**
+   * 每个子任务缓存的最大结果数
+   * */
+  int memoizeSize() default 1024;
+
 }
@@ -1,23 +1,91 @@
 package com.sdu.flink.table.functions.enhance;
 
+import static com.sdu.flink.table.functions.enhance.utils.ProcessorUtils.createVariableLabel;
+import static com.sdu.flink.table.functions.enhance.utils.ProcessorUtils.getNameFromString;
+import static com.sdu.flink.table.functions.enhance.utils.ProcessorUtils.memberAccess;
+
+import com.sun.tools.javac.api.JavacTrees;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCBinary;
+import com.sun.tools.javac.tree.JCTree.JCExpressionStatement;
+import com.sun.tools.javac.tree.JCTree.JCIf;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
+import com.sun.tools.javac.tree.JCTree.Tag;
+import com.sun.tools.javac.tree.TreeMaker;
+import com.sun.tools.javac.tree.TreeTranslator;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Names;
 import java.util.HashSet;
 import java.util.Set;
 import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
 
+/**
+ * 增强 TableFunction 的 eval 方法:
+ *
+ * <pre>
+ * long $startNanos = this.before();
+ * try {
+ *   ...
+ * } catch (Exception e) {
+ *   this.onException(e);
+ *   if (this.throwException == true) {
+ *     throw e;
+ *   }
+ *   this.emitDefaultValue();
+ * } finally {
+ *   this.after($startNanos);
+ * }
+ * </pre>
+ * */
 public class TableFunctionAnnotationProcessor extends AbstractProcessor {
 
+  // 生成的局部变量名, 避免与用户代码冲突
+  private static final String START_NANOS = "$startNanos";
+
+  // 编译时期打日志
+  private Messager messager;
+  // 抽象语法树AST
+  private JavacTrees javacTrees;
+  // 创建AST节点
+  private TreeMaker treeMaker;
+  // 创建标识符
+  private Names names;
+
   @Override
   public synchronized void init(ProcessingEnvironment processingEnv) {
     super.init(processingEnv);
+
+    this.messager = processingEnv.getMessager();
+    this.javacTrees = JavacTrees.instance(processingEnv);
+    this.treeMaker = TreeMaker.instance(((JavacProcessingEnvironment) processingEnv).getContext());
+    this.names = Names.instance(((JavacProcessingEnvironment) processingEnv).getContext());
   }
 
   @Override
   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-    return false;
+    // 获取标记TableFunctionEnhance的元素
+    Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(TableFunctionEnhance.class);
+    messager.printMessage(Kind.NOTE, "Start process 'TableFunctionEnhance' annotation ...");
+
+    elements.forEach((Element e) -> {
+      // 获取当前元素的JCTree对象
+      JCTree jcTree = javacTrees.getTree(e);
+
+      // 遍历JCTree节点
+      jcTree.accept(new JCTreeNodeTranslator());
+    });
+
+    return true;
   }
 
   @Override
@@ -31,4 +99,76 @@ public class TableFunctionAnnotationProcessor extends AbstractProcessor {
   public SourceVersion getSupportedSourceVersion() {
     return SourceVersion.RELEASE_8;
   }
+
+  private class JCTreeNodeTranslator extends TreeTranslator {
+
+    @Override
+    public void visitMethodDef(JCMethodDecl jcMethodDecl) {
+      String methodName = jcMethodDecl.name.toString();
+      if (methodName.equals("eval")) {
+        messager.printMessage(Kind.NOTE, "Start enhance 'eval' method ...");
+
+        // 执行before()方法, 开始时间保存在局部变量中
+        JCVariableDecl startNanos = createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
+            START_NANOS, treeMaker.TypeIdent(TypeTag.LONG),
+            treeMaker.Apply(
+                List.nil(),
+                memberAccess(treeMaker, names, "this.before"),
+                List.nil()
+            ));
+
+        // 执行after(startNanos)方法, 同时输出缓冲的数据
+        JCExpressionStatement afterStatement = treeMaker.Exec(
+            treeMaker.Apply(
+                List.nil(),
+                memberAccess(treeMaker, names, "this.after"),
+                List.of(treeMaker.Ident(startNanos.name))
+            ));
+
+        // 执行异常处理
+        JCExpressionStatement onExceptionStatement = treeMaker.Exec(
+            treeMaker.Apply(
+                List.nil(),
+                memberAccess(treeMaker, names, "this.onException"),
+                List.of(treeMaker.Ident(getNameFromString(names, "e")))
+            ));
+
+        // 不抛出异常时输出默认值
+        JCExpressionStatement emitDefaultValueStatement = treeMaker.Exec(
+            treeMaker.Apply(
+                List.nil(),
+                memberAccess(treeMaker, names, "this.emitDefaultValue"),
+                List.nil()
+            ));
+
+        JCBinary condition = treeMaker.Binary(Tag.EQ, memberAccess(treeMaker, names, "this.throwException"), treeMaker.Literal(true));
+        JCIf ifBlock = treeMaker.If(condition,
+            treeMaker.Throw(treeMaker.Ident(getNameFromString(names, "e"))),
+            null);
+        JCTree.JCBlock catchBlock = treeMaker.Block(0, List.of(
+            // 异常计数及打印日志
+            onExceptionStatement,
+            // 判断是否抛出异常
+            ifBlock,
+            emitDefaultValueStatement
+        ));
+
+        // 方法体Finally
+        JCTree.JCBlock finallyBlock = treeMaker.Block(0, List.of(afterStatement));
+
+        // 更改方法执行体
+        jcMethodDecl.body = treeMaker.Block(0, List.of(
+            startNanos,
+            // 添加try{...} catch() {...} finally {...}
+            treeMaker.Try(jcMethodDecl.body,
+                List.of(treeMaker.Catch(createVariableLabel(treeMaker, names, treeMaker.Modifiers(0),
+                    "e", memberAccess(treeMaker, names, "java.lang.Exception"), null), catchBlock)),
+                finallyBlock
+            )));
+      }
+      super.visitMethodDef(jcMethodDecl);
+    }
+
+  }
+
 }
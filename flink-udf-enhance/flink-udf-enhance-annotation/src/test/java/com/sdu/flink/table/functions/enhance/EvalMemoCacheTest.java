@@ -0,0 +1,95 @@
+package com.sdu.flink.table.functions.enhance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * 按生成代码的调用方式(probe -> get -> copy -> put)校验 {@link EvalMemoCache}
+ * */
+public class EvalMemoCacheTest {
+
+  @Test
+  public void testLruEviction() {
+    EvalMemoCache cache = new EvalMemoCache(2);
+    put(cache, "a", "A");
+    put(cache, "b", "B");
+    // 访问 a, b 成为最久未访问的缓存项
+    assertEquals("A", cache.get(cache.probe(0).arg("a")));
+
+    put(cache, "c", "C");
+    assertEquals(2, cache.size());
+    assertSame(EvalMemoCache.MISS, cache.get(cache.probe(0).arg("b")));
+    assertEquals("A", cache.get(cache.probe(0).arg("a")));
+    assertEquals("C", cache.get(cache.probe(0).arg("c")));
+
+    assertEquals(3, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testPrimitiveArguments() {
+    EvalMemoCache cache = new EvalMemoCache(16);
+    cache.put(cache.probe(0).arg(1).arg(2L).arg(true).copy(), 3L);
+
+    assertEquals(3L, cache.get(cache.probe(0).arg(1).arg(2L).arg(true)));
+    assertSame(EvalMemoCache.MISS, cache.get(cache.probe(0).arg(1).arg(2L).arg(false)));
+    // 参数个数或 eval 重载不同
+    assertSame(EvalMemoCache.MISS, cache.get(cache.probe(0).arg(1).arg(2L)));
+    assertSame(EvalMemoCache.MISS, cache.get(cache.probe(1).arg(1).arg(2L).arg(true)));
+
+    // double 按位比较: NaN 可命中, 0.0 与 -0.0 区分
+    cache.put(cache.probe(2).arg(Double.NaN).copy(), "NaN");
+    cache.put(cache.probe(2).arg(0.0d).copy(), "+0");
+    assertEquals("NaN", cache.get(cache.probe(2).arg(Double.NaN)));
+    assertSame(EvalMemoCache.MISS, cache.get(cache.probe(2).arg(-0.0d)));
+  }
+
+  @Test
+  public void testBoxedArguments() {
+    EvalMemoCache cache = new EvalMemoCache(16);
+    // 不同的装箱实例按 equals 比较
+    cache.put(cache.probe(0).arg((Object) Integer.valueOf(1000)).copy(), "boxed");
+    assertEquals("boxed", cache.get(cache.probe(0).arg((Object) new Integer(1000))));
+
+    // 数值参数与同值的装箱参数分别缓存, 不会误命中
+    cache.put(cache.probe(0).arg(1000).copy(), "primitive");
+    assertEquals("primitive", cache.get(cache.probe(0).arg(1000)));
+    assertEquals("boxed", cache.get(cache.probe(0).arg((Object) 1000)));
+    assertNotEquals(cache.probe(0).arg(1000).copy(), cache.probe(0).arg((Object) 1000).copy());
+  }
+
+  @Test
+  public void testNullArgumentsAndResult() {
+    EvalMemoCache cache = new EvalMemoCache(16);
+    cache.put(cache.probe(0).arg((Object) null).arg("x").copy(), "null-x");
+    // 缓存的 null 结果与未命中区分
+    cache.put(cache.probe(0).arg("x").arg((Object) null).copy(), (Object) null);
+
+    assertEquals("null-x", cache.get(cache.probe(0).arg((Object) null).arg("x")));
+    assertNull(cache.get(cache.probe(0).arg("x").arg((Object) null)));
+    // null 与数值 0 不相等
+    assertSame(EvalMemoCache.MISS, cache.get(cache.probe(0).arg(0).arg("x")));
+    assertSame(EvalMemoCache.MISS, cache.get(cache.probe(0).arg("null").arg("x")));
+  }
+
+  @Test
+  public void testProbeReusedAfterCopy() {
+    EvalMemoCache cache = new EvalMemoCache(16);
+    EvalMemoCache.Key key = cache.probe(0).arg("a").copy();
+    // 嵌套调用重置探测键, 不影响已复制的缓存键
+    cache.probe(0).arg("b");
+    cache.put(key, "A");
+
+    assertEquals("A", cache.get(cache.probe(0).arg("a")));
+    assertSame(EvalMemoCache.MISS, cache.get(cache.probe(0).arg("b")));
+  }
+
+  private static void put(EvalMemoCache cache, String arg, String value) {
+    cache.put(cache.probe(0).arg(arg).copy(), value);
+  }
+
+}
@@ -0,0 +1,25 @@
+package com.sdu.flink.table.functions.enhance;
+
+/**
+ * 批次调用边界: 算子在处理一批数据前后调用, 批次内 eval 的计数及计时在批次结束时统一记录.
+ *
+ * 批次可嵌套, 仅最外层批次生效.
+ * */
+public interface BatchEvalScope {
+
+  void beginBatch(int size);
+
+  void endBatch();
+
+  /**
+   * evalBatch 方法开启的批次, 由生成代码调用: 批次内不再逐行调用 eval, 按 size 计数
+   * */
+  default void beginEvalBatch(int size) {
+    beginBatch(size);
+  }
+
+  default void endEvalBatch() {
+    endBatch();
+  }
+
+}
@@ -0,0 +1,302 @@
+package com.sdu.flink.table.functions.enhance.asm;
+
+import static com.sdu.flink.table.functions.enhance.asm.UdfClassHierarchy.THROW_EXCEPTION_FIELD;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.Method;
+
+/**
+ * eval 方法增强, 生成代码见 {@link UdfClassEnhancer}.
+ *
+ * 正常返回前插入的 after() 不在异常保护范围内: 保护范围在每个 return 前结束, 在其后第一条原有指令处重新开始,
+ * after() 抛出的异常直接抛给调用方, 不会再次调用 onException() / after().
+ * */
+final class EvalMethodEnhancer extends AdviceAdapter {
+
+  private static final Method SHORT_CIRCUIT = Method.getMethod("boolean shortCircuit()");
+  private static final Method BEFORE = Method.getMethod("long before()");
+  private static final Method AFTER = Method.getMethod("void after(long)");
+  private static final Method ON_EXCEPTION = Method.getMethod("void onException(java.lang.Throwable)");
+
+  private static final Type EXCEPTION_TYPE = Type.getType(Exception.class);
+  private static final Type THROWABLE_TYPE = Type.getType(Throwable.class);
+  private static final Type STRING_TYPE = Type.getType(String.class);
+  private static final Type MAP_TYPE = Type.getObjectType("java/util/Map");
+
+  private final Type ownerType;
+  private final Type returnType;
+  private final UdfClassHierarchy hierarchy;
+
+  // 原有指令的保护范围 [start, end)
+  private final List<Label> rangeStarts = new ArrayList<>();
+  private final List<Label> rangeEnds = new ArrayList<>();
+  private boolean rangeOpen;
+
+  private final Label exceptionHandler = new Label();
+  private final Label finallyHandler = new Label();
+
+  private int startNanos;
+
+  EvalMethodEnhancer(MethodVisitor mv, int access, String name, String descriptor, String owner,
+      UdfClassHierarchy hierarchy) {
+    super(Opcodes.ASM7, mv, access, name, descriptor);
+    this.ownerType = Type.getObjectType(owner);
+    this.returnType = Type.getReturnType(descriptor);
+    this.hierarchy = hierarchy;
+  }
+
+  @Override
+  protected void onMethodEnter() {
+    // if (this.shortCircuit()) return default value; 不在保护范围内, 与注解处理器一致
+    if (hierarchy.shortCircuitMethod) {
+      Label proceed = new Label();
+      loadThis();
+      invokeVirtual(ownerType, SHORT_CIRCUIT);
+      ifZCmp(EQ, proceed);
+      pushDefaultValue();
+      returnValue();
+      mark(proceed);
+    }
+
+    // long startNanos = this.before();
+    loadThis();
+    invokeVirtual(ownerType, BEFORE);
+    startNanos = newLocal(Type.LONG_TYPE);
+    storeLocal(startNanos);
+  }
+
+  @Override
+  protected void onMethodExit(int opcode) {
+    // 异常退出由异常处理块调用 after()
+    if (opcode != ATHROW) {
+      closeRange();
+      invokeAfter();
+    }
+  }
+
+  @Override
+  public void visitInsn(int opcode) {
+    // return 指令不在保护范围内, onMethodExit 已结束当前范围
+    if (opcode < IRETURN || opcode > RETURN) {
+      openRange();
+    }
+    super.visitInsn(opcode);
+  }
+
+  @Override
+  public void visitIntInsn(int opcode, int operand) {
+    openRange();
+    super.visitIntInsn(opcode, operand);
+  }
+
+  @Override
+  public void visitVarInsn(int opcode, int var) {
+    openRange();
+    super.visitVarInsn(opcode, var);
+  }
+
+  @Override
+  public void visitTypeInsn(int opcode, String type) {
+    openRange();
+    super.visitTypeInsn(opcode, type);
+  }
+
+  @Override
+  public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+    openRange();
+    super.visitFieldInsn(opcode, owner, name, descriptor);
+  }
+
+  @Override
+  public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+    openRange();
+    super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+  }
+
+  @Override
+  public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+      Object... bootstrapMethodArguments) {
+    openRange();
+    super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+  }
+
+  @Override
+  public void visitJumpInsn(int opcode, Label label) {
+    openRange();
+    super.visitJumpInsn(opcode, label);
+  }
+
+  @Override
+  public void visitLdcInsn(Object value) {
+    openRange();
+    super.visitLdcInsn(value);
+  }
+
+  @Override
+  public void visitIincInsn(int var, int increment) {
+    openRange();
+    super.visitIincInsn(var, increment);
+  }
+
+  @Override
+  public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+    openRange();
+    super.visitTableSwitchInsn(min, max, dflt, labels);
+  }
+
+  @Override
+  public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+    openRange();
+    super.visitLookupSwitchInsn(dflt, keys, labels);
+  }
+
+  @Override
+  public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+    openRange();
+    super.visitMultiANewArrayInsn(descriptor, numDimensions);
+  }
+
+  @Override
+  public void visitMaxs(int maxStack, int maxLocals) {
+    closeRange();
+    // 方法体仅有 return, 无需异常处理
+    if (rangeStarts.isEmpty()) {
+      super.visitMaxs(maxStack, maxLocals);
+      return;
+    }
+
+    // catch (Exception e)
+    mark(exceptionHandler);
+    int cause = newLocal(EXCEPTION_TYPE);
+    storeLocal(cause);
+    loadThis();
+    loadLocal(cause);
+    invokeVirtual(ownerType, ON_EXCEPTION);
+    invokeAfter();
+    if (hierarchy.throwExceptionField) {
+      Label rethrow = new Label();
+      loadThis();
+      getField(ownerType, THROW_EXCEPTION_FIELD, Type.BOOLEAN_TYPE);
+      ifZCmp(NE, rethrow);
+      pushDefaultValue();
+      returnValue();
+      mark(rethrow);
+    }
+    loadLocal(cause);
+    throwException();
+
+    // finally: 其余 Throwable
+    mark(finallyHandler);
+    int throwable = newLocal(THROWABLE_TYPE);
+    storeLocal(throwable);
+    invokeAfter();
+    loadLocal(throwable);
+    throwException();
+
+    // 异常表置于原有条目之后, 不影响方法内部的 catch
+    for (int i = 0; i < rangeStarts.size(); ++i) {
+      visitTryCatchBlock(rangeStarts.get(i), rangeEnds.get(i), exceptionHandler, EXCEPTION_TYPE.getInternalName());
+      visitTryCatchBlock(rangeStarts.get(i), rangeEnds.get(i), finallyHandler, null);
+    }
+    super.visitMaxs(maxStack, maxLocals);
+  }
+
+  /**
+   * 在原有指令前开始保护范围, 范围内至少包含一条指令
+   * */
+  private void openRange() {
+    if (!rangeOpen) {
+      rangeOpen = true;
+      rangeStarts.add(mark());
+    }
+  }
+
+  private void closeRange() {
+    if (rangeOpen) {
+      rangeOpen = false;
+      rangeEnds.add(mark());
+    }
+  }
+
+  private void invokeAfter() {
+    loadThis();
+    loadLocal(startNanos);
+    invokeVirtual(ownerType, AFTER);
+  }
+
+  /**
+   * 与 ProcessorUtils#getDefaultValueMethodName 保持一致, 未实现 DefaultValueInitializer 时取零值.
+   * 处于熔断判断或异常处理块中, 指令直接写入 mv, 不开始保护范围
+   * */
+  private void pushDefaultValue() {
+    String method = hierarchy.defaultValues ? getDefaultValueMethodName() : null;
+    if (method != null) {
+      loadThis();
+      Type type = returnType.getSort() == Type.ARRAY ? Type.getType(Object[].class) : returnType;
+      invokeVirtual(ownerType, new Method(method, type, new Type[0]));
+      if (returnType.getSort() == Type.ARRAY) {
+        checkCast(returnType);
+      }
+      return;
+    }
+
+    switch (returnType.getSort()) {
+      case Type.VOID:
+        return;
+      case Type.BOOLEAN:
+      case Type.CHAR:
+      case Type.BYTE:
+      case Type.SHORT:
+      case Type.INT:
+        push(0);
+        return;
+      case Type.LONG:
+        push(0L);
+        return;
+      case Type.FLOAT:
+        push(0.0f);
+        return;
+      case Type.DOUBLE:
+        push(0.0d);
+        return;
+      default:
+        mv.visitInsn(ACONST_NULL);
+    }
+  }
+
+  private String getDefaultValueMethodName() {
+    switch (returnType.getSort()) {
+      case Type.BOOLEAN:
+        return "getDefaultBooleanValue";
+      case Type.DOUBLE:
+        return "getDefaultDoubleValue";
+      case Type.FLOAT:
+        return "getDefaultFloatValue";
+      case Type.INT:
+        return "getDefaultIntValue";
+      case Type.SHORT:
+        return "getDefaultShortValue";
+      case Type.LONG:
+        return "getDefaultLongValue";
+      case Type.BYTE:
+        return "getDefaultByteValue";
+      case Type.ARRAY:
+        return returnType.getElementType().getSort() == Type.OBJECT ? "getDefaultArrayValue" : null;
+      case Type.OBJECT:
+        if (returnType.equals(STRING_TYPE)) {
+          return "getDefaultStringValue";
+        }
+        return returnType.equals(MAP_TYPE) ? "getDefaultMapValue" : null;
+      default:
+        return null;
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+package com.sdu.flink.table.functions.enhance.asm;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * 字节码层面增强 eval 方法, 效果与 ScalarFunctionAnnotationProcessor 生成的代码一致:
+ *
+ * <pre>
+ * if (this.shortCircuit()) return default value;
+ * long startNanos = this.before();
+ * try {
+ *   ...
+ * } catch (Exception e) {
+ *   this.onException(e);
+ *   if (this.throwException) throw e;
+ *   return default value;
+ * } finally {
+ *   this.after(startNanos);
+ * }
+ * </pre>
+ *
+ * 类中不存在 boolean shortCircuit() 方法(如未继承 QScalarFunction)时不生成熔断判断.
+ * 已由注解处理器增强(eval 中调用了 before())的方法不再处理.
+ * */
+public class UdfClassEnhancer {
+
+  static final String EVAL = "eval";
+  static final String BEFORE = "before";
+  static final String BEFORE_DESC = "()J";
+
+  private UdfClassEnhancer() {
+
+  }
+
+  /**
+   * @return 增强后的字节码, 非 UDF 或无需增强时返回 null
+   * */
+  public static byte[] enhance(byte[] classBytes, ClassLoader loader) throws Exception {
+    ClassReader reader = new ClassReader(classBytes);
+    if ((reader.getAccess() & (Opcodes.ACC_INTERFACE | Opcodes.ACC_ANNOTATION)) != 0) {
+      return null;
+    }
+
+    // 先扫描当前类, 没有可增强的 eval 方法时不解析继承关系
+    EvalMethodScanner scanner = new EvalMethodScanner();
+    reader.accept(scanner, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    if (scanner.candidates.isEmpty()) {
+      return null;
+    }
+
+    UdfClassHierarchy hierarchy = UdfClassHierarchy.resolve(reader, loader);
+    if (!hierarchy.udf || !hierarchy.enhancer) {
+      return null;
+    }
+
+    ClassWriter writer = new UdfClassWriter(reader, loader);
+    reader.accept(new EnhanceClassVisitor(writer, reader.getClassName(), scanner.candidates, hierarchy),
+        ClassReader.SKIP_FRAMES);
+    return writer.toByteArray();
+  }
+
+  private static class EvalMethodScanner extends ClassVisitor {
+
+    // name + descriptor
+    private final Set<String> candidates = new HashSet<>();
+
+    EvalMethodScanner() {
+      super(Opcodes.ASM7);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+        String[] exceptions) {
+      int excluded = Opcodes.ACC_STATIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE
+          | Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC;
+      if (!EVAL.equals(name) || (access & Opcodes.ACC_PUBLIC) == 0 || (access & excluded) != 0) {
+        return null;
+      }
+      String method = name + descriptor;
+      candidates.add(method);
+      return new MethodVisitor(Opcodes.ASM7) {
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+          if (BEFORE.equals(name) && BEFORE_DESC.equals(descriptor)) {
+            candidates.remove(method);
+          }
+        }
+      };
+    }
+
+  }
+
+  private static class EnhanceClassVisitor extends ClassVisitor {
+
+    private final String owner;
+    private final Set<String> candidates;
+    private final UdfClassHierarchy hierarchy;
+
+    EnhanceClassVisitor(ClassVisitor cv, String owner, Set<String> candidates, UdfClassHierarchy hierarchy) {
+      super(Opcodes.ASM7, cv);
+      this.owner = owner;
+      this.candidates = candidates;
+      this.hierarchy = hierarchy;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+        String[] exceptions) {
+      MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+      if (mv == null || !candidates.contains(name + descriptor)) {
+        return mv;
+      }
+      return new EvalMethodEnhancer(mv, access, name, descriptor, owner, hierarchy);
+    }
+
+  }
+
+  /**
+   * 计算栈帧时使用 UDF 所在的 ClassLoader, 无法加载时退化为 Object
+   * */
+  private static class UdfClassWriter extends ClassWriter {
+
+    private final ClassLoader loader;
+
+    UdfClassWriter(ClassReader reader, ClassLoader loader) {
+      super(reader, ClassWriter.COMPUTE_FRAMES);
+      this.loader = loader == null ? ClassLoader.getSystemClassLoader() : loader;
+    }
+
+    @Override
+    protected ClassLoader getClassLoader() {
+      return loader;
+    }
+
+    @Override
+    protected String getCommonSuperClass(String type1, String type2) {
+      try {
+        return super.getCommonSuperClass(type1, type2);
+      } catch (Throwable t) {
+        return "java/lang/Object";
+      }
+    }
+
+  }
+
+}
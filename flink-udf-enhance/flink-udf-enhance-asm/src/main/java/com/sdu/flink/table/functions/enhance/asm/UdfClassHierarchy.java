@@ -0,0 +1,112 @@
+package com.sdu.flink.table.functions.enhance.asm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * 通过 ClassLoader 读取父类字节码解析继承关系, 不触发父类加载
+ * */
+final class UdfClassHierarchy {
+
+  static final String SCALAR_FUNCTION = "org/apache/flink/table/functions/ScalarFunction";
+  static final String TABLE_FUNCTION = "org/apache/flink/table/functions/TableFunction";
+  static final String ENHANCER = "com/sdu/flink/table/functions/UserDefinedFunctionEnhancer";
+  static final String DEFAULT_VALUE_INITIALIZER = "com/sdu/flink/table/functions/enhance/DefaultValueInitializer";
+  static final String THROW_EXCEPTION_FIELD = "throwException";
+  static final String SHORT_CIRCUIT_METHOD = "shortCircuit";
+
+  // 是否为 ScalarFunction / TableFunction 子类
+  boolean udf;
+  // 是否实现 UserDefinedFunctionEnhancer
+  boolean enhancer;
+  // 是否实现 DefaultValueInitializer
+  boolean defaultValues;
+  // 是否可访问 boolean throwException 字段
+  boolean throwExceptionField;
+  // 是否可调用 boolean shortCircuit() 方法
+  boolean shortCircuitMethod;
+
+  private UdfClassHierarchy() {
+
+  }
+
+  static UdfClassHierarchy resolve(ClassReader reader, ClassLoader loader) throws IOException {
+    ClassLoader classLoader = loader == null ? ClassLoader.getSystemClassLoader() : loader;
+    UdfClassHierarchy hierarchy = new UdfClassHierarchy();
+
+    Deque<String> types = new ArrayDeque<>();
+    Set<String> visited = new HashSet<>();
+    hierarchy.visit(reader, types);
+    while (!types.isEmpty()) {
+      String type = types.poll();
+      if (!visited.add(type)) {
+        continue;
+      }
+      switch (type) {
+        case SCALAR_FUNCTION:
+        case TABLE_FUNCTION:
+          hierarchy.udf = true;
+          continue;
+        case ENHANCER:
+          hierarchy.enhancer = true;
+          continue;
+        case DEFAULT_VALUE_INITIALIZER:
+          hierarchy.defaultValues = true;
+          continue;
+        default:
+          if (type.startsWith("java/")) {
+            continue;
+          }
+      }
+
+      try (InputStream in = classLoader.getResourceAsStream(type + ".class")) {
+        if (in != null) {
+          hierarchy.visit(new ClassReader(in), types);
+        }
+      }
+    }
+    return hierarchy;
+  }
+
+  private void visit(ClassReader reader, Deque<String> types) {
+    if (reader.getSuperName() != null) {
+      types.add(reader.getSuperName());
+    }
+    for (String type : reader.getInterfaces()) {
+      types.add(type);
+    }
+    if (throwExceptionField && shortCircuitMethod) {
+      return;
+    }
+    reader.accept(new ClassVisitor(Opcodes.ASM7) {
+      @Override
+      public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        if (THROW_EXCEPTION_FIELD.equals(name) && "Z".equals(descriptor)
+            && (access & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == 0) {
+          throwExceptionField = true;
+        }
+        return null;
+      }
+
+      @Override
+      public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+          String[] exceptions) {
+        if (SHORT_CIRCUIT_METHOD.equals(name) && "()Z".equals(descriptor)
+            && (access & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == 0) {
+          shortCircuitMethod = true;
+        }
+        return null;
+      }
+    }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+  }
+
+}
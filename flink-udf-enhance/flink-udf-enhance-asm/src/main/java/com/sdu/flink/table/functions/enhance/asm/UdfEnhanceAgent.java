@@ -0,0 +1,25 @@
+package com.sdu.flink.table.functions.enhance.asm;
+
+import java.lang.instrument.Instrumentation;
+
+/**
+ * Java Agent 入口: -javaagent:flink-udf-enhance-asm.jar[=com.foo.udf,com.bar.udf]
+ *
+ * 参数为需要增强的包名前缀, 逗号分隔, 缺省时检查所有用户类
+ * */
+public class UdfEnhanceAgent {
+
+  private UdfEnhanceAgent() {
+
+  }
+
+  public static void premain(String args, Instrumentation instrumentation) {
+    instrumentation.addTransformer(new UdfEnhanceTransformer(args));
+  }
+
+  public static void agentmain(String args, Instrumentation instrumentation) {
+    // 仅对之后加载的类生效
+    instrumentation.addTransformer(new UdfEnhanceTransformer(args));
+  }
+
+}
@@ -0,0 +1,66 @@
+package com.sdu.flink.table.functions.enhance.asm;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class UdfEnhanceTransformer implements ClassFileTransformer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UdfEnhanceTransformer.class);
+
+  // 不会包含 UDF 的类, 直接跳过
+  private static final String[] EXCLUDED_PREFIXES = {
+      "java/", "javax/", "sun/", "com/sun/", "jdk/", "scala/",
+      "org/apache/flink/", "org/objectweb/asm/", "org/slf4j/", "org/apache/logging/",
+      "com/sdu/flink/table/functions/template/"
+  };
+
+  private final String[] includedPrefixes;
+
+  public UdfEnhanceTransformer(String args) {
+    if (args == null || args.trim().isEmpty()) {
+      this.includedPrefixes = new String[0];
+    } else {
+      String[] packages = args.split(",");
+      this.includedPrefixes = new String[packages.length];
+      for (int i = 0; i < packages.length; ++i) {
+        includedPrefixes[i] = packages[i].trim().replace('.', '/');
+      }
+    }
+  }
+
+  @Override
+  public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+      ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+    if (className == null || classBeingRedefined != null || !accept(className)) {
+      return null;
+    }
+
+    try {
+      return UdfClassEnhancer.enhance(classfileBuffer, loader);
+    } catch (Throwable t) {
+      // 增强失败时使用原始字节码, 不影响类加载
+      LOG.warn("Failed to enhance UDF class {}", className, t);
+      return null;
+    }
+  }
+
+  private boolean accept(String className) {
+    for (String prefix : EXCLUDED_PREFIXES) {
+      if (className.startsWith(prefix)) {
+        return false;
+      }
+    }
+    if (includedPrefixes.length == 0) {
+      return true;
+    }
+    for (String prefix : includedPrefixes) {
+      if (className.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
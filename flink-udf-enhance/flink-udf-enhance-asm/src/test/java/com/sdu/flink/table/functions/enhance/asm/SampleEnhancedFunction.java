@@ -0,0 +1,67 @@
+package com.sdu.flink.table.functions.enhance.asm;
+
+import com.sdu.flink.table.functions.UserDefinedFunctionEnhancer;
+import org.apache.flink.table.functions.ScalarFunction;
+
+/**
+ * 由 {@link UdfClassEnhancer} 增强的 UDF, 记录增强代码的调用次数
+ * */
+public class SampleEnhancedFunction extends ScalarFunction implements UserDefinedFunctionEnhancer {
+
+  public boolean throwException;
+  // after() 是否抛出异常
+  public boolean failAfter;
+  // shortCircuit() 返回值
+  public boolean circuitOpen;
+
+  public int beforeCount;
+  public int afterCount;
+  public int exceptionCount;
+
+  @Override
+  public long before() {
+    ++beforeCount;
+    return System.nanoTime();
+  }
+
+  @Override
+  public void after(long startNanos) {
+    ++afterCount;
+    if (failAfter) {
+      throw new IllegalStateException("after failed");
+    }
+  }
+
+  @Override
+  public void onException(Throwable cause) {
+    ++exceptionCount;
+  }
+
+  public boolean shortCircuit() {
+    return circuitOpen;
+  }
+
+  public int eval(int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("negative value: " + value);
+    }
+    return value + 1;
+  }
+
+  public String eval(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return String.valueOf(Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      // 方法内部的 catch 不受增强影响
+      return "NaN";
+    }
+  }
+
+  public void eval() {
+
+  }
+
+}
@@ -0,0 +1,154 @@
+package com.sdu.flink.table.functions.enhance.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 加载增强后的 {@link SampleEnhancedFunction}, 校验熔断判断及 before / after / onException 的调用次数
+ * */
+public class UdfClassEnhancerTest {
+
+  private static final String FUNCTION_CLASS = SampleEnhancedFunction.class.getName();
+
+  private Class<?> enhancedClass;
+  private Object function;
+
+  @Before
+  public void setUp() throws Exception {
+    ClassLoader parent = getClass().getClassLoader();
+    byte[] enhanced = UdfClassEnhancer.enhance(readClass(parent, FUNCTION_CLASS), parent);
+    assertNotNull(enhanced);
+    enhancedClass = new EnhancedClassLoader(parent, enhanced).loadClass(FUNCTION_CLASS);
+    function = enhancedClass.newInstance();
+  }
+
+  @Test
+  public void testReturn() throws Exception {
+    assertEquals(2, invoke("eval", new Class<?>[]{int.class}, 1));
+    assertCounts(1, 1, 0);
+
+    assertEquals("42", invoke("eval", new Class<?>[]{String.class}, " 42 "));
+    assertNull(invoke("eval", new Class<?>[]{String.class}, (Object) null));
+    // 方法内部捕获的异常不调用 onException
+    assertEquals("NaN", invoke("eval", new Class<?>[]{String.class}, "x"));
+    assertCounts(4, 4, 0);
+
+    invoke("eval", new Class<?>[0]);
+    assertCounts(5, 5, 0);
+  }
+
+  @Test
+  public void testExceptionReturnsDefaultValue() throws Exception {
+    assertEquals(0, invoke("eval", new Class<?>[]{int.class}, -1));
+    assertCounts(1, 1, 1);
+  }
+
+  @Test
+  public void testExceptionRethrown() throws Exception {
+    setField("throwException", true);
+    try {
+      invoke("eval", new Class<?>[]{int.class}, -1);
+      fail("eval should throw exception");
+    } catch (InvocationTargetException e) {
+      assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+    }
+    assertCounts(1, 1, 1);
+  }
+
+  @Test
+  public void testShortCircuitReturnsDefaultValue() throws Exception {
+    setField("circuitOpen", true);
+    // 熔断期间不执行方法体, 不调用 before / after
+    assertEquals(0, invoke("eval", new Class<?>[]{int.class}, -1));
+    assertNull(invoke("eval", new Class<?>[]{String.class}, "42"));
+    invoke("eval", new Class<?>[0]);
+    assertCounts(0, 0, 0);
+
+    setField("circuitOpen", false);
+    assertEquals(2, invoke("eval", new Class<?>[]{int.class}, 1));
+    assertCounts(1, 1, 0);
+  }
+
+  @Test
+  public void testAfterFailureNotHandledAgain() throws Exception {
+    setField("failAfter", true);
+    try {
+      invoke("eval", new Class<?>[]{int.class}, 1);
+      fail("after() should throw exception");
+    } catch (InvocationTargetException e) {
+      assertEquals(IllegalStateException.class, e.getCause().getClass());
+    }
+    // after() 抛出的异常不进入异常处理块: 不调用 onException, after() 仅调用一次
+    assertCounts(1, 1, 0);
+  }
+
+  private Object invoke(String name, Class<?>[] parameterTypes, Object... args) throws Exception {
+    Method method = enhancedClass.getMethod(name, parameterTypes);
+    return method.invoke(function, args);
+  }
+
+  private void setField(String name, Object value) throws Exception {
+    enhancedClass.getField(name).set(function, value);
+  }
+
+  private void assertCounts(int before, int after, int exception) throws Exception {
+    assertEquals("before", before, enhancedClass.getField("beforeCount").getInt(function));
+    assertEquals("after", after, enhancedClass.getField("afterCount").getInt(function));
+    assertEquals("onException", exception, enhancedClass.getField("exceptionCount").getInt(function));
+  }
+
+  private static byte[] readClass(ClassLoader loader, String className) throws IOException {
+    try (InputStream in = loader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+      assertNotNull(in);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        out.write(buffer, 0, len);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  /**
+   * 优先加载增强后的 UDF 类, 其余类委托给父 ClassLoader
+   * */
+  private static class EnhancedClassLoader extends ClassLoader {
+
+    private final byte[] enhanced;
+
+    EnhancedClassLoader(ClassLoader parent, byte[] enhanced) {
+      super(parent);
+      this.enhanced = enhanced;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!FUNCTION_CLASS.equals(name)) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> clazz = findLoadedClass(name);
+        if (clazz == null) {
+          clazz = defineClass(name, enhanced, 0, enhanced.length);
+        }
+        if (resolve) {
+          resolveClass(clazz);
+        }
+        return clazz;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,146 @@
+package com.sdu.flink.table.functions;
+
+import java.util.function.LongSupplier;
+
+/**
+ * UDF 熔断器: 统计最近 windowSize 次调用的失败率, 超过阈值后熔断 openMillis,
+ * 之后进入半开状态放行 halfOpenProbes 次探测调用, 全部成功则恢复, 任一失败则重新熔断.
+ *
+ * 仅在 Task 线程调用, 非线程安全; 关闭状态下不读取时钟.
+ * */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int windowSize;
+  private final double failureRateThreshold;
+  private final int minimumCalls;
+  private final long openMillis;
+  private final int halfOpenProbes;
+  // 毫秒时钟, 测试时可替换
+  private final LongSupplier clock;
+
+  // 环形窗口: 按位记录调用结果, 1 表示失败
+  private final long[] outcomes;
+  private int position;
+  private int recordedCalls;
+  private int failedCalls;
+
+  private State state = State.CLOSED;
+  private long openUntil;
+  private int probeCalls;
+  private int probeSuccesses;
+
+  public CircuitBreaker(int windowSize, double failureRateThreshold, int minimumCalls,
+      long openMillis, int halfOpenProbes) {
+    this(windowSize, failureRateThreshold, minimumCalls, openMillis, halfOpenProbes, System::currentTimeMillis);
+  }
+
+  CircuitBreaker(int windowSize, double failureRateThreshold, int minimumCalls,
+      long openMillis, int halfOpenProbes, LongSupplier clock) {
+    if (windowSize <= 0 || failureRateThreshold <= 0 || failureRateThreshold > 1
+        || minimumCalls <= 0 || openMillis <= 0 || halfOpenProbes <= 0) {
+      throw new IllegalArgumentException("Invalid circuit breaker config");
+    }
+    this.windowSize = windowSize;
+    this.failureRateThreshold = failureRateThreshold;
+    this.minimumCalls = Math.min(minimumCalls, windowSize);
+    this.openMillis = openMillis;
+    this.halfOpenProbes = halfOpenProbes;
+    this.clock = clock;
+    this.outcomes = new long[(windowSize + 63) >>> 6];
+  }
+
+  /**
+   * 是否放行本次调用, 放行的调用需随后调用 {@link #onSuccess()} 或 {@link #onFailure()}
+   * */
+  public boolean allowRequest() {
+    switch (state) {
+      case CLOSED:
+        return true;
+
+      case OPEN:
+        if (clock.getAsLong() < openUntil) {
+          return false;
+        }
+        state = State.HALF_OPEN;
+        probeCalls = 0;
+        probeSuccesses = 0;
+        // 进入半开状态, 继续判断是否放行探测调用
+
+      case HALF_OPEN:
+        if (probeCalls < halfOpenProbes) {
+          ++probeCalls;
+          return true;
+        }
+        return false;
+
+      default:
+        throw new IllegalStateException("Unknown state: " + state);
+    }
+  }
+
+  public void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      if (++probeSuccesses >= halfOpenProbes) {
+        close();
+      }
+      return;
+    }
+    record(false);
+  }
+
+  public void onFailure() {
+    if (state == State.HALF_OPEN) {
+      open();
+      return;
+    }
+    record(true);
+    if (recordedCalls >= minimumCalls && failedCalls >= failureRateThreshold * recordedCalls) {
+      open();
+    }
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  private void record(boolean failed) {
+    int word = position >>> 6;
+    long mask = 1L << (position & 63);
+    // 覆盖窗口中最早的结果
+    if (recordedCalls == windowSize) {
+      if ((outcomes[word] & mask) != 0) {
+        --failedCalls;
+      }
+    } else {
+      ++recordedCalls;
+    }
+
+    if (failed) {
+      outcomes[word] |= mask;
+      ++failedCalls;
+    } else {
+      outcomes[word] &= ~mask;
+    }
+    position = position + 1 == windowSize ? 0 : position + 1;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openUntil = clock.getAsLong() + openMillis;
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    position = 0;
+    recordedCalls = 0;
+    failedCalls = 0;
+    for (int i = 0; i < outcomes.length; ++i) {
+      outcomes[i] = 0L;
+    }
+  }
+
+}
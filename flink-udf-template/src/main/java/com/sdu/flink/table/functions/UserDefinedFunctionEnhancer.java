@@ -2,9 +2,12 @@ package com.sdu.flink.table.functions;
 
 public interface UserDefinedFunctionEnhancer {
 
-  void before();
+  /**
+   * @return 调用开始时间(ns), 由生成代码保存在局部变量并传给 {@link #after(long)}
+   * */
+  long before();
 
-  void after();
+  void after(long startNanos);
 
   void onException(Throwable cause);
 }
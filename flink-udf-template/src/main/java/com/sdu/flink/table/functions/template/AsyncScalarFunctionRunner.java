@@ -0,0 +1,109 @@
+package com.sdu.flink.table.functions.template;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.datastream.AsyncDataStream;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.datastream.SingleOutputStreamOperator;
+import org.apache.flink.streaming.api.functions.async.ResultFuture;
+import org.apache.flink.streaming.api.functions.async.RichAsyncFunction;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.types.Row;
+
+/**
+ * 以输入行的 argIndexes 字段为参数调用 {@link QAsyncScalarFunction}, 结果追加为输出行的最后一个字段.
+ *
+ * SQL Calc 生成代码同步调用 UDF, 无法挂起等待结果, 因此异步 UDF 以独立的 AsyncWaitOperator 接入:
+ * 最大未完成请求数由 capacity 限制, 输出顺序与输入一致.
+ *
+ * 仅支持 DataStream 作业: 规划器不识别 QAsyncScalarFunction, 在 SQL/Table API 中注册时仍按同步 eval 调用.
+ * */
+public class AsyncScalarFunctionRunner<T> extends RichAsyncFunction<Row, Row> {
+
+  private final QAsyncScalarFunction<T> function;
+  private final int[] argIndexes;
+
+  public AsyncScalarFunctionRunner(QAsyncScalarFunction<T> function, int[] argIndexes) {
+    this.function = function;
+    this.argIndexes = argIndexes;
+  }
+
+  @Override
+  public void open(Configuration parameters) throws Exception {
+    function.open(new FunctionContext(getRuntimeContext()));
+  }
+
+  @Override
+  public void asyncInvoke(Row input, ResultFuture<Row> resultFuture) {
+    Object[] args = new Object[argIndexes.length];
+    for (int i = 0; i < argIndexes.length; ++i) {
+      args[i] = input.getField(argIndexes[i]);
+    }
+    function.evalAsync(args).whenComplete((value, cause) -> {
+      if (cause != null) {
+        resultFuture.completeExceptionally(cause);
+      } else {
+        resultFuture.complete(Collections.singleton(append(input, value)));
+      }
+    });
+  }
+
+  @Override
+  public void timeout(Row input, ResultFuture<Row> resultFuture) {
+    if (function.throwException) {
+      resultFuture.completeExceptionally(new TimeoutException(
+          "Async ScalarFunction(" + function.getMetricPrefix() + ") timeout"));
+      return;
+    }
+    resultFuture.complete(Collections.singleton(append(input, function.getTimeoutValue())));
+  }
+
+  @Override
+  public void close() throws Exception {
+    function.close();
+  }
+
+  private static Row append(Row input, Object value) {
+    int arity = input.getArity();
+    Row output = new Row(arity + 1);
+    for (int i = 0; i < arity; ++i) {
+      output.setField(i, input.getField(i));
+    }
+    output.setField(arity, value);
+    return output;
+  }
+
+  /**
+   * 有序异步调用 UDF, 输入流类型需为 {@link RowTypeInfo}
+   * */
+  public static <T> SingleOutputStreamOperator<Row> orderedWait(
+      DataStream<Row> input,
+      QAsyncScalarFunction<T> function,
+      TypeInformation<T> resultType,
+      long timeoutMillis,
+      int capacity,
+      int... argIndexes) {
+    if (!(input.getType() instanceof RowTypeInfo)) {
+      throw new IllegalArgumentException("Input type should be RowTypeInfo, but " + input.getType());
+    }
+    RowTypeInfo inputType = (RowTypeInfo) input.getType();
+    int arity = inputType.getArity();
+    TypeInformation<?>[] types = new TypeInformation<?>[arity + 1];
+    String[] fieldNames = new String[arity + 1];
+    for (int i = 0; i < arity; ++i) {
+      types[i] = inputType.getTypeAt(i);
+      fieldNames[i] = inputType.getFieldNames()[i];
+    }
+    types[arity] = resultType;
+    fieldNames[arity] = function.getMetricPrefix();
+
+    return AsyncDataStream
+        .orderedWait(input, new AsyncScalarFunctionRunner<>(function, argIndexes), timeoutMillis, TimeUnit.MILLISECONDS, capacity)
+        .returns(new RowTypeInfo(types, fieldNames));
+  }
+
+}
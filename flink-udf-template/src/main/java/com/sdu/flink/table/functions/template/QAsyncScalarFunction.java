@@ -0,0 +1,184 @@
+package com.sdu.flink.table.functions.template;
+
+import com.sdu.flink.table.functions.enhance.EvalMemoCache;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.flink.table.functions.FunctionContext;
+
+/**
+ * I/O 密集型 UDF 模板: eval 仍按同步方式实现(可标记 @ScalarFunctionEnhance), 由 {@link #evalAsync(Object...)}
+ * 提交到固定大小的 I/O 线程池执行, 线程数即同时执行的最大请求数.
+ *
+ * 配合 {@link AsyncScalarFunctionRunner} 使用, 结果按输入顺序输出. 规划器未接入异步调用, SQL/Table API 中
+ * 注册本类时退化为逐行同步调用 eval.
+ *
+ * 计时, 熔断等增强方法会在 I/O 线程调用, 本类对其加锁; 调用失败标记及 eval 结果缓存按线程独立.
+ * */
+public abstract class QAsyncScalarFunction<T> extends QScalarFunction {
+
+  // I/O 线程数
+  private static final String ASYNC_MAX_CONCURRENCY = "async.max.concurrency";
+
+  private transient ExecutorService executor;
+  // 按参数个数索引的 eval 方法, 同参数个数存在多个重载时为 null
+  private transient Method[] evalMethods;
+  private transient ThreadLocal<EvalMemoCache> memoCaches;
+  private transient ThreadLocal<Boolean> invocationFailures;
+
+  @Override
+  public void open(FunctionContext context) throws Exception {
+    super.open(context);
+
+    int concurrency = Math.max(1, Integer.parseInt(context.getJobParameter(ASYNC_MAX_CONCURRENCY, "8")));
+    AtomicInteger threadId = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+      Thread thread = new Thread(runnable, getMetricPrefix() + "-async-" + threadId.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    evalMethods = resolveEvalMethods();
+    memoCaches = new ThreadLocal<>();
+    invocationFailures = ThreadLocal.withInitial(() -> Boolean.FALSE);
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    super.close();
+  }
+
+  /**
+   * 在 I/O 线程执行参数个数匹配的 eval 方法, eval 抛出的异常通过返回的 Future 传递
+   * */
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<T> evalAsync(Object... args) {
+    Method method = args.length < evalMethods.length ? evalMethods[args.length] : null;
+    if (method == null) {
+      CompletableFuture<T> failure = new CompletableFuture<>();
+      failure.completeExceptionally(new IllegalStateException(
+          "No unique eval method with " + args.length + " parameters in " + getClass().getName()));
+      return failure;
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    executor.execute(() -> {
+      try {
+        result.complete((T) method.invoke(this, args));
+      } catch (InvocationTargetException e) {
+        result.completeExceptionally(e.getCause());
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * 请求超时且不抛出异常时的输出值
+   * */
+  public T getTimeoutValue() {
+    return null;
+  }
+
+  @Override
+  public synchronized boolean shortCircuit() {
+    return super.shortCircuit();
+  }
+
+  @Override
+  public synchronized long before() {
+    return super.before();
+  }
+
+  @Override
+  public synchronized void after(long startNanos) {
+    super.after(startNanos);
+  }
+
+  @Override
+  public synchronized void onException(Throwable cause) {
+    super.onException(cause);
+  }
+
+  @Override
+  public synchronized void beginBatch(int size) {
+    super.beginBatch(size);
+  }
+
+  @Override
+  public synchronized void endBatch() {
+    super.endBatch();
+  }
+
+  @Override
+  public synchronized void beginEvalBatch(int size) {
+    super.beginEvalBatch(size);
+  }
+
+  @Override
+  public synchronized void endEvalBatch() {
+    super.endEvalBatch();
+  }
+
+  /**
+   * 同一次调用的 onException 与 after 在同一 I/O 线程执行, 失败标记按线程记录, 不影响其他线程的调用
+   * */
+  @Override
+  protected boolean isInvocationFailed() {
+    return invocationFailures.get();
+  }
+
+  @Override
+  protected void setInvocationFailed(boolean failed) {
+    invocationFailures.set(failed);
+  }
+
+  /**
+   * 缓存键在查询时复用, 不能跨线程共享, 每个 I/O 线程独立缓存
+   * */
+  @Override
+  protected EvalMemoCache getMemoCache(int maximumSize) {
+    EvalMemoCache memoCache = memoCaches.get();
+    if (memoCache == null) {
+      memoCache = new EvalMemoCache(maximumSize);
+      memoCaches.set(memoCache);
+    }
+    return memoCache;
+  }
+
+  private Method[] resolveEvalMethods() {
+    Method[] methods = new Method[0];
+    boolean[] ambiguous = new boolean[0];
+    for (Method method : getClass().getMethods()) {
+      if (!method.getName().equals("eval") || Modifier.isStatic(method.getModifiers()) || method.isVarArgs()) {
+        continue;
+      }
+      int arity = method.getParameterCount();
+      if (arity >= methods.length) {
+        Method[] newMethods = new Method[arity + 1];
+        System.arraycopy(methods, 0, newMethods, 0, methods.length);
+        methods = newMethods;
+        boolean[] newAmbiguous = new boolean[arity + 1];
+        System.arraycopy(ambiguous, 0, newAmbiguous, 0, ambiguous.length);
+        ambiguous = newAmbiguous;
+      }
+      if (methods[arity] != null) {
+        ambiguous[arity] = true;
+      }
+      methods[arity] = method;
+    }
+    for (int i = 0; i < methods.length; ++i) {
+      if (ambiguous[i]) {
+        methods[i] = null;
+      }
+    }
+    return methods;
+  }
+
+}
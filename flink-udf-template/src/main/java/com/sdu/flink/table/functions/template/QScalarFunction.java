@@ -1,17 +1,35 @@
 package com.sdu.flink.table.functions.template;
 
+import com.sdu.flink.table.functions.CircuitBreaker;
 import com.sdu.flink.table.functions.UserDefinedFunctionEnhancer;
+import com.sdu.flink.table.functions.enhance.BatchEvalScope;
 import com.sdu.flink.table.functions.enhance.DefaultValueInitializer;
+import com.sdu.flink.table.functions.enhance.EvalMemoCache;
 import com.sdu.flink.table.metric.TimeWindowHistogram;
 import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
 import org.apache.flink.metrics.Histogram;
 import org.apache.flink.table.functions.FunctionContext;
 import org.apache.flink.table.functions.ScalarFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * 批量调用: 子类可按需定义 evalBatch 方法, 以基本类型数组作为输入及输出, 最后一个参数为批次大小, 如:
+ *
+ * <pre>
+ * public void evalBatch(long[] values, long[] results, int size)
+ * </pre>
+ *
+ * @ScalarFunctionEnhance 以 {@link #beginEvalBatch(int)} / {@link #endEvalBatch()} 包裹 evalBatch, 按 size 计数;
+ * 算子以 {@link #beginBatch(int)} / {@link #endBatch()} 包裹一批数据时, 按批次内实际的 eval 调用计数(过滤掉的行不计).
+ * 调用次数及耗时在最外层批次结束时统一记录, 耗时按批次均摊到每次调用.
+ *
+ * evalBatch 供直接调用方(如 DataStream 作业)使用: SQL Calc 生成代码逐行调用 eval, 动态 Calc 算子不会调用 evalBatch,
+ * 仅以批次边界分摊 before/after 开销.
+ * */
 public abstract class QScalarFunction extends ScalarFunction
-    implements UserDefinedFunctionEnhancer, DefaultValueInitializer {
+    implements UserDefinedFunctionEnhancer, DefaultValueInitializer, BatchEvalScope {
 
   private static final Logger LOG = LoggerFactory.getLogger(QScalarFunction.class);
 
@@ -19,51 +37,194 @@ public abstract class QScalarFunction extends ScalarFunction
   private static final String EXECUTE_COST = "%s.execute.cost";
   private static final String INVOKE_COUNT = "%s.invoke.count";
   private static final String INVOKE_FAILURE_COUNT = "%s.invoke.failure.count";
+  private static final String MEMO_HIT_COUNT = "%s.memo.hit.count";
+  private static final String MEMO_MISS_COUNT = "%s.memo.miss.count";
+  private static final String BREAKER_STATE = "%s.circuit.breaker.state";
+  private static final String SHORT_CIRCUIT_COUNT = "%s.short.circuit.count";
 
   // 发生异常时, 是否直接抛出
   private static final String THROW_EXCEPTION = "throw.exception";
-
-  // 统计耗时指标
+  // 耗时统计窗口(ms)
+  private static final String HISTOGRAM_WINDOW = "metric.histogram.window.ms";
+  private static final int HISTOGRAM_SLOTS = 6;
+  // 耗时采样间隔: 每 N 次调用统计一次耗时
+  private static final String SAMPLE_INTERVAL = "metric.sample.interval";
+  // 熔断配置: 最近 window.size 次调用失败率达到 failure.rate 后熔断 open.ms, 之后放行 half.open.probes 次探测调用
+  private static final String BREAKER_ENABLED = "circuit.breaker.enabled";
+  private static final String BREAKER_FAILURE_RATE = "circuit.breaker.failure.rate";
+  private static final String BREAKER_WINDOW_SIZE = "circuit.breaker.window.size";
+  private static final String BREAKER_MINIMUM_CALLS = "circuit.breaker.minimum.calls";
+  private static final String BREAKER_OPEN_MILLIS = "circuit.breaker.open.ms";
+  private static final String BREAKER_HALF_OPEN_PROBES = "circuit.breaker.half.open.probes";
+
+  // 未采样的调用, before() 返回该值
+  private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+  // 统计耗时指标(us)
   private Histogram executeCostHistogram;
   // 统计调用次数指标
   private Counter invokeCounter;
   // 统计失败次数指标
   private Counter invokeFailureCounter;
+  // 统计熔断跳过次数指标
+  private Counter shortCircuitCounter;
 
   protected boolean throwException;
 
-  private long startTime;
+  // 未开启熔断时为 null
+  private CircuitBreaker circuitBreaker;
+  // 本次调用已记录失败, after() 不再记录成功
+  private boolean invocationFailed;
+
+  // eval 结果缓存, 由 @ScalarFunctionEnhance(memoize = true) 生成的代码首次调用时创建
+  private EvalMemoCache memoCache;
+
+  private int sampleInterval;
+  // 距下一次采样的调用次数
+  private int sampleCountdown;
+
+  // 批次嵌套深度
+  private int batchDepth;
+  // 批次内 eval 调用次数
+  private int batchInvocations;
+  // evalBatch 嵌套深度, evalBatch 内部调用的 eval 已按 size 计数
+  private int evalBatchDepth;
+  private long batchStartNanos;
 
   @Override
   public void open(FunctionContext context) throws Exception {
     throwException = Boolean.parseBoolean(context.getJobParameter(THROW_EXCEPTION, "false"));
+    sampleInterval = Math.max(1, Integer.parseInt(context.getJobParameter(SAMPLE_INTERVAL, "1")));
+    sampleCountdown = sampleInterval;
+    if (Boolean.parseBoolean(context.getJobParameter(BREAKER_ENABLED, "false"))) {
+      circuitBreaker = new CircuitBreaker(
+          Integer.parseInt(context.getJobParameter(BREAKER_WINDOW_SIZE, "100")),
+          Double.parseDouble(context.getJobParameter(BREAKER_FAILURE_RATE, "0.5")),
+          Integer.parseInt(context.getJobParameter(BREAKER_MINIMUM_CALLS, "20")),
+          Long.parseLong(context.getJobParameter(BREAKER_OPEN_MILLIS, "10000")),
+          Integer.parseInt(context.getJobParameter(BREAKER_HALF_OPEN_PROBES, "5")));
+    }
 
     // 注册指标
+    long histogramWindow = Long.parseLong(context.getJobParameter(HISTOGRAM_WINDOW, "60000"));
     executeCostHistogram = context.getMetricGroup().histogram(String.format(EXECUTE_COST, getMetricPrefix()),
-        new TimeWindowHistogram());
+        new TimeWindowHistogram(histogramWindow, HISTOGRAM_SLOTS));
     invokeCounter = context.getMetricGroup().counter(INVOKE_COUNT);
     invokeFailureCounter = context.getMetricGroup().counter(INVOKE_FAILURE_COUNT);
+    context.getMetricGroup().gauge(String.format(MEMO_HIT_COUNT, getMetricPrefix()),
+        (Gauge<Long>) () -> memoCache == null ? 0L : memoCache.getHitCount());
+    context.getMetricGroup().gauge(String.format(MEMO_MISS_COUNT, getMetricPrefix()),
+        (Gauge<Long>) () -> memoCache == null ? 0L : memoCache.getMissCount());
+    shortCircuitCounter = context.getMetricGroup().counter(String.format(SHORT_CIRCUIT_COUNT, getMetricPrefix()));
+    // 0: 关闭, 1: 熔断, 2: 半开
+    context.getMetricGroup().gauge(String.format(BREAKER_STATE, getMetricPrefix()),
+        (Gauge<Integer>) () -> circuitBreaker == null ? 0 : circuitBreaker.getState().ordinal());
+  }
+
+  /**
+   * 熔断期间返回 true, 生成代码直接返回默认值而不执行 eval 方法体
+   * */
+  public boolean shortCircuit() {
+    if (circuitBreaker == null || circuitBreaker.allowRequest()) {
+      return false;
+    }
+    shortCircuitCounter.inc(1);
+    return true;
   }
 
 
   @Override
-  public void before() {
-    startTime = System.currentTimeMillis();
+  public long before() {
+    if (batchDepth > 0) {
+      if (evalBatchDepth == 0) {
+        ++batchInvocations;
+      }
+      return NOT_SAMPLED;
+    }
     invokeCounter.inc(1);
-
+    return sample();
   }
 
   @Override
-  public void after() {
-    executeCostHistogram.update(System.currentTimeMillis() - startTime);
+  public void after(long startNanos) {
+    if (circuitBreaker != null) {
+      if (isInvocationFailed()) {
+        setInvocationFailed(false);
+      } else {
+        circuitBreaker.onSuccess();
+      }
+    }
+    if (startNanos != NOT_SAMPLED) {
+      executeCostHistogram.update((System.nanoTime() - startNanos) / 1000);
+    }
   }
 
   @Override
   public void onException(Throwable cause) {
     LOG.error("ScalarFunction({}) occur exception", getMetricPrefix(), cause);
     invokeFailureCounter.inc(1);
+    if (circuitBreaker != null) {
+      setInvocationFailed(true);
+      circuitBreaker.onFailure();
+    }
+  }
+
+
+  @Override
+  public void beginBatch(int size) {
+    if (batchDepth++ == 0) {
+      batchInvocations = 0;
+      batchStartNanos = sample();
+    }
+  }
+
+  @Override
+  public void endBatch() {
+    if (--batchDepth > 0 || batchInvocations == 0) {
+      return;
+    }
+    invokeCounter.inc(batchInvocations);
+    if (batchStartNanos != NOT_SAMPLED) {
+      executeCostHistogram.update((System.nanoTime() - batchStartNanos) / 1000 / batchInvocations);
+    }
   }
 
+  @Override
+  public void beginEvalBatch(int size) {
+    beginBatch(size);
+    if (evalBatchDepth++ == 0) {
+      batchInvocations += size;
+    }
+  }
+
+  @Override
+  public void endEvalBatch() {
+    --evalBatchDepth;
+    endBatch();
+  }
+
+  private long sample() {
+    if (--sampleCountdown > 0) {
+      return NOT_SAMPLED;
+    }
+    sampleCountdown = sampleInterval;
+    return System.nanoTime();
+  }
+
+  protected boolean isInvocationFailed() {
+    return invocationFailed;
+  }
+
+  protected void setInvocationFailed(boolean failed) {
+    invocationFailed = failed;
+  }
+
+  protected EvalMemoCache getMemoCache(int maximumSize) {
+    if (memoCache == null) {
+      memoCache = new EvalMemoCache(maximumSize);
+    }
+    return memoCache;
+  }
 
   public abstract String getMetricPrefix();
 }
@@ -1,32 +1,195 @@
 package com.sdu.flink.table.functions.template;
 
 import com.sdu.flink.table.functions.UserDefinedFunctionEnhancer;
+import com.sdu.flink.table.metric.TimeWindowHistogram;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Histogram;
 import org.apache.flink.table.functions.FunctionContext;
 import org.apache.flink.table.functions.TableFunction;
+import org.apache.flink.types.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * 通过 {@link #emit(Object)} 输出的数据先写入批次, eval 结束时统一 collect.
+ *
+ * {@link #nextRow(int)} 返回批次中可复用的 Row, 下游需在 collect 调用内消费完数据(如 Correlate 算子),
+ * 不能持有该对象. 直接调用 collect 与 emit 混用时不保证输出顺序.
+ *
+ * eval 发生异常时丢弃批次中尚未输出的数据, 仅输出默认值(不抛出异常时); 批次满时已输出的数据无法撤回.
+ *
+ * 批次依赖增强代码(@TableFunctionEnhance 或 ASM Agent)在 eval 结束时调用 after() 输出; 未增强的子类不调用 before(),
+ * emit 直接 collect, 数据不会滞留到下一次 eval(如 LATERAL TABLE 中关联到其他输入行).
+ * */
 public abstract class QTableFunction<T> extends TableFunction<T>
     implements UserDefinedFunctionEnhancer {
 
+  private static final Logger LOG = LoggerFactory.getLogger(QTableFunction.class);
+
+  // 指标名
+  private static final String EXECUTE_COST = "%s.execute.cost";
+  private static final String EMIT_ROWS = "%s.emit.rows";
+  private static final String INVOKE_COUNT = "%s.invoke.count";
+  private static final String INVOKE_FAILURE_COUNT = "%s.invoke.failure.count";
+  private static final String EMIT_COUNT = "%s.emit.count";
+
+  // 发生异常时, 是否直接抛出
+  private static final String THROW_EXCEPTION = "throw.exception";
+  // 耗时统计窗口(ms)
+  private static final String HISTOGRAM_WINDOW = "metric.histogram.window.ms";
+  private static final int HISTOGRAM_SLOTS = 6;
+  // 耗时采样间隔: 每 N 次调用统计一次耗时
+  private static final String SAMPLE_INTERVAL = "metric.sample.interval";
+  // 输出批次大小
+  private static final String EMIT_BATCH_SIZE = "udtf.emit.batch.size";
+
+  // 未采样的调用, before() 返回该值
+  private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+  // 统计耗时指标(us)
+  private Histogram executeCostHistogram;
+  // 统计每次调用输出行数
+  private Histogram emitRowsHistogram;
+  // 统计调用次数指标
+  private Counter invokeCounter;
+  // 统计失败次数指标
+  private Counter invokeFailureCounter;
+  // 统计输出行数指标
+  private Counter emitCounter;
+
+  protected boolean throwException;
+
+  private int sampleInterval;
+  // 距下一次采样的调用次数
+  private int sampleCountdown;
+
+  // eval 嵌套深度, 最外层调用结束时输出批次
+  private int depth;
+  // 当前调用已输出行数
+  private long invocationRows;
+
+  private Object[] batch;
+  private Row[] rowPool;
+  private int batchSize;
+
   @Override
   public void open(FunctionContext context) throws Exception {
+    throwException = Boolean.parseBoolean(context.getJobParameter(THROW_EXCEPTION, "false"));
+    sampleInterval = Math.max(1, Integer.parseInt(context.getJobParameter(SAMPLE_INTERVAL, "1")));
+    sampleCountdown = sampleInterval;
 
+    int capacity = Math.max(1, Integer.parseInt(context.getJobParameter(EMIT_BATCH_SIZE, "64")));
+    batch = new Object[capacity];
+    rowPool = new Row[capacity];
+
+    // 注册指标
+    long histogramWindow = Long.parseLong(context.getJobParameter(HISTOGRAM_WINDOW, "60000"));
+    executeCostHistogram = context.getMetricGroup().histogram(String.format(EXECUTE_COST, getMetricPrefix()),
+        new TimeWindowHistogram(histogramWindow, HISTOGRAM_SLOTS));
+    emitRowsHistogram = context.getMetricGroup().histogram(String.format(EMIT_ROWS, getMetricPrefix()),
+        new TimeWindowHistogram(histogramWindow, HISTOGRAM_SLOTS));
+    invokeCounter = context.getMetricGroup().counter(String.format(INVOKE_COUNT, getMetricPrefix()));
+    invokeFailureCounter = context.getMetricGroup().counter(String.format(INVOKE_FAILURE_COUNT, getMetricPrefix()));
+    emitCounter = context.getMetricGroup().counter(String.format(EMIT_COUNT, getMetricPrefix()));
   }
 
   @Override
-  public void before() {
-
+  public long before() {
+    if (depth++ == 0) {
+      invokeCounter.inc(1);
+      invocationRows = 0;
+    }
+    if (--sampleCountdown > 0) {
+      return NOT_SAMPLED;
+    }
+    sampleCountdown = sampleInterval;
+    return System.nanoTime();
   }
 
   @Override
-  public void after() {
-
+  public void after(long startNanos) {
+    if (--depth == 0) {
+      flush();
+      emitRowsHistogram.update(invocationRows);
+    }
+    if (startNanos != NOT_SAMPLED) {
+      executeCostHistogram.update((System.nanoTime() - startNanos) / 1000);
+    }
   }
 
   @Override
   public void onException(Throwable cause) {
+    LOG.error("TableFunction({}) occur exception", getMetricPrefix(), cause);
+    invokeFailureCounter.inc(1);
+    // 丢弃异常前写入的数据: 重新抛出时 after() 中不再 collect, 不会掩盖原异常
+    discard();
+  }
+
+  /**
+   * 写入输出批次, 批次满时立即输出
+   * */
+  protected final void emit(T value) {
+    // 不在增强的 eval 调用内, 无法确定调用何时结束, 不缓冲
+    if (depth == 0) {
+      collect(value);
+      emitCounter.inc(1);
+      return;
+    }
+    if (batchSize == batch.length) {
+      flush();
+    }
+    batch[batchSize++] = value;
+    ++invocationRows;
+  }
+
+  /**
+   * 批次中下一个位置可复用的 Row, 填充字段后调用 {@link #emit(Object)}
+   * */
+  protected final Row nextRow(int arity) {
+    if (batchSize == batch.length) {
+      flush();
+    }
+    Row row = rowPool[batchSize];
+    if (row == null || row.getArity() != arity) {
+      row = new Row(arity);
+      rowPool[batchSize] = row;
+    }
+    return row;
+  }
 
+  /**
+   * 异常未抛出时输出默认值, 由生成代码调用
+   * */
+  public void emitDefaultValue() {
+    T value = getDefaultValue();
+    if (value != null) {
+      emit(value);
+    }
+  }
+
+  private void discard() {
+    for (int i = 0; i < batchSize; ++i) {
+      batch[i] = null;
+    }
+    invocationRows -= batchSize;
+    batchSize = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void flush() {
+    int size = batchSize;
+    // 先重置, collect 过程中发生异常时不重复输出
+    batchSize = 0;
+    for (int i = 0; i < size; ++i) {
+      Object value = batch[i];
+      batch[i] = null;
+      collect((T) value);
+    }
+    emitCounter.inc(size);
   }
 
   public abstract T getDefaultValue();
 
+  public abstract String getMetricPrefix();
+
 }
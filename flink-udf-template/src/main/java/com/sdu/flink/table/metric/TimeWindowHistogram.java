@@ -1,23 +1,251 @@
 package com.sdu.flink.table.metric;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
 import org.apache.flink.metrics.Histogram;
 import org.apache.flink.metrics.HistogramStatistics;
 
+/**
+ * 滑动时间窗口直方图, 窗口由若干时间片组成, 时间片过期后由首个写入线程 CAS 重置.
+ *
+ * 桶采用 log-linear 划分: [0, 16) 每个值一个桶, 之后每个 2 的幂区间再等分 16 个桶, 相对误差不超过 1/16.
+ * update 无锁且不分配内存, 计数按桶分散在 AtomicLongArray 中; 最大值, 最小值及均值为精确值.
+ */
 public class TimeWindowHistogram implements Histogram {
 
+  private static final long DEFAULT_WINDOW_MILLIS = 60_000L;
+  private static final int DEFAULT_SLOTS = 6;
+
+  // 每个 2 的幂区间划分的子桶数: 2^SUB_BUCKET_BITS
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  // 可记录的最大值, 超出部分计入最后一个桶
+  private static final long MAX_TRACKABLE_VALUE = (1L << 40) - 1;
+  private static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_VALUE) + 1;
+
+  private final long slotMillis;
+  private final Slot[] slots;
+  // 毫秒时钟, 测试时可替换
+  private final LongSupplier clock;
+
+  private final AtomicLong count = new AtomicLong();
+
+  public TimeWindowHistogram() {
+    this(DEFAULT_WINDOW_MILLIS, DEFAULT_SLOTS);
+  }
+
+  public TimeWindowHistogram(long windowMillis, int slotNum) {
+    this(windowMillis, slotNum, System::currentTimeMillis);
+  }
+
+  TimeWindowHistogram(long windowMillis, int slotNum, LongSupplier clock) {
+    if (windowMillis <= 0 || slotNum <= 0 || windowMillis < slotNum) {
+      throw new IllegalArgumentException("Invalid window: " + windowMillis + " ms, slots: " + slotNum);
+    }
+    this.slotMillis = windowMillis / slotNum;
+    this.slots = new Slot[slotNum];
+    this.clock = clock;
+    for (int i = 0; i < slotNum; ++i) {
+      slots[i] = new Slot();
+    }
+  }
+
   @Override
   public void update(long value) {
-
+    long epoch = clock.getAsLong() / slotMillis;
+    Slot slot = slots[(int) (epoch % slots.length)];
+    slot.rollTo(epoch);
+    slot.record(value < 0 ? 0 : value);
+    count.incrementAndGet();
   }
 
   @Override
   public long getCount() {
-    return 0;
+    return count.get();
   }
 
   @Override
   public HistogramStatistics getStatistics() {
-    return null;
+    long currentEpoch = clock.getAsLong() / slotMillis;
+    long[] buckets = new long[BUCKET_COUNT];
+    long size = 0;
+    long sum = 0;
+    long max = Long.MIN_VALUE;
+    long min = Long.MAX_VALUE;
+
+    for (Slot slot : slots) {
+      long epoch = slot.epoch.get();
+      // 仅合并窗口内的时间片
+      if (epoch > currentEpoch || epoch <= currentEpoch - slots.length) {
+        continue;
+      }
+      for (int i = 0; i < BUCKET_COUNT; ++i) {
+        long bucket = slot.buckets.get(i);
+        buckets[i] += bucket;
+        size += bucket;
+      }
+      sum += slot.sum.get();
+      max = Math.max(max, slot.max.get());
+      min = Math.min(min, slot.min.get());
+    }
+
+    if (size == 0) {
+      return new WindowStatistics(buckets, 0, 0, 0, 0);
+    }
+    return new WindowStatistics(buckets, size, sum, min, max);
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    if (value > MAX_TRACKABLE_VALUE) {
+      value = MAX_TRACKABLE_VALUE;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+  }
+
+  /**
+   * 桶内代表值: 取区间中点
+   */
+  static long bucketValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long lower = ((long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1)))) << shift;
+    return lower + ((1L << shift) >>> 1);
+  }
+
+  private static final class Slot {
+
+    // 时间片序号: currentTimeMillis / slotMillis
+    private final AtomicLong epoch = new AtomicLong(-1);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    void rollTo(long newEpoch) {
+      long current = epoch.get();
+      // 重置期间其他线程的少量写入可能丢失, 对统计指标可接受
+      if (current < newEpoch && epoch.compareAndSet(current, newEpoch)) {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+          buckets.set(i, 0);
+        }
+        sum.set(0);
+        max.set(Long.MIN_VALUE);
+        min.set(Long.MAX_VALUE);
+      }
+    }
+
+    void record(long value) {
+      buckets.incrementAndGet(bucketIndex(value));
+      sum.addAndGet(value);
+
+      long current;
+      while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+        // retry
+      }
+      while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+        // retry
+      }
+    }
+
+  }
+
+  private static final class WindowStatistics extends HistogramStatistics {
+
+    private final long[] buckets;
+    private final long size;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    WindowStatistics(long[] buckets, long size, long sum, long min, long max) {
+      this.buckets = buckets;
+      this.size = size;
+      this.sum = sum;
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    public double getQuantile(double quantile) {
+      if (size == 0) {
+        return 0.0;
+      }
+      long rank = (long) Math.ceil(quantile * size);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; ++i) {
+        seen += buckets[i];
+        if (seen >= rank && buckets[i] > 0) {
+          // 代表值不超出实际观测范围
+          return Math.max(min, Math.min(max, bucketValue(i)));
+        }
+      }
+      return max;
+    }
+
+    /**
+     * 每个非空桶的代表值, 不包含各值的出现次数
+     */
+    @Override
+    public long[] getValues() {
+      int nonEmpty = 0;
+      for (long bucket : buckets) {
+        if (bucket > 0) {
+          ++nonEmpty;
+        }
+      }
+      long[] values = new long[nonEmpty];
+      int pos = 0;
+      for (int i = 0; i < buckets.length; ++i) {
+        if (buckets[i] > 0) {
+          values[pos++] = bucketValue(i);
+        }
+      }
+      return values;
+    }
+
+    @Override
+    public int size() {
+      return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    @Override
+    public double getMean() {
+      return size == 0 ? 0.0 : (double) sum / size;
+    }
+
+    @Override
+    public double getStdDev() {
+      if (size < 2) {
+        return 0.0;
+      }
+      double mean = getMean();
+      double squares = 0.0;
+      for (int i = 0; i < buckets.length; ++i) {
+        if (buckets[i] > 0) {
+          double diff = bucketValue(i) - mean;
+          squares += diff * diff * buckets[i];
+        }
+      }
+      return Math.sqrt(squares / (size - 1));
+    }
+
+    @Override
+    public long getMax() {
+      return max;
+    }
+
+    @Override
+    public long getMin() {
+      return min;
+    }
+
   }
 
 }
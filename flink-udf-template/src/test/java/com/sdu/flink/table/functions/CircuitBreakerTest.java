@@ -0,0 +1,128 @@
+package com.sdu.flink.table.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.sdu.flink.table.functions.CircuitBreaker.State;
+import org.junit.Test;
+
+/**
+ * 以可控时钟校验 {@link CircuitBreaker} 的窗口统计, 熔断及半开探测
+ * */
+public class CircuitBreakerTest {
+
+  private long now = 1000L;
+
+  @Test
+  public void testMinimumCalls() {
+    CircuitBreaker breaker = create(10, 0.5, 4, 1);
+    fail(breaker, 3);
+    // 调用次数不足 minimumCalls, 不熔断
+    assertEquals(State.CLOSED, breaker.getState());
+
+    fail(breaker, 1);
+    assertEquals(State.OPEN, breaker.getState());
+    assertFalse(breaker.allowRequest());
+  }
+
+  @Test
+  public void testThresholdTrip() {
+    CircuitBreaker breaker = create(4, 0.75, 4, 1);
+    fail(breaker, 2);
+    succeed(breaker, 1);
+    fail(breaker, 1);
+    // 4 次调用中 3 次失败, 达到阈值
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void testWindowRollover() {
+    CircuitBreaker breaker = create(4, 0.75, 4, 1);
+    fail(breaker, 3);
+    succeed(breaker, 4);
+    // 窗口只保留最近 4 次调用, 早期失败已被覆盖: 1 / 4
+    fail(breaker, 1);
+    assertEquals(State.CLOSED, breaker.getState());
+
+    // 继续覆盖成功结果, 窗口中失败达到 3 / 4 时熔断
+    fail(breaker, 1);
+    assertEquals(State.CLOSED, breaker.getState());
+    fail(breaker, 1);
+    assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void testCoolDown() {
+    CircuitBreaker breaker = create(4, 0.5, 2, 2);
+    fail(breaker, 2);
+    assertEquals(State.OPEN, breaker.getState());
+
+    now += 99;
+    assertFalse(breaker.allowRequest());
+    assertEquals(State.OPEN, breaker.getState());
+
+    now += 1;
+    assertTrue(breaker.allowRequest());
+    assertEquals(State.HALF_OPEN, breaker.getState());
+  }
+
+  @Test
+  public void testHalfOpenProbesSucceed() {
+    CircuitBreaker breaker = create(4, 0.5, 2, 2);
+    fail(breaker, 2);
+    now += 100;
+
+    // 仅放行 halfOpenProbes 次探测调用
+    assertTrue(breaker.allowRequest());
+    assertTrue(breaker.allowRequest());
+    assertFalse(breaker.allowRequest());
+
+    breaker.onSuccess();
+    assertEquals(State.HALF_OPEN, breaker.getState());
+    breaker.onSuccess();
+    assertEquals(State.CLOSED, breaker.getState());
+
+    // 恢复后窗口清空, 单次失败不足 minimumCalls
+    fail(breaker, 1);
+    assertEquals(State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testHalfOpenProbeFails() {
+    CircuitBreaker breaker = create(4, 0.5, 2, 2);
+    fail(breaker, 2);
+    now += 100;
+
+    assertTrue(breaker.allowRequest());
+    breaker.onSuccess();
+    assertTrue(breaker.allowRequest());
+    breaker.onFailure();
+    // 任一探测失败重新熔断, 熔断时间从当前时刻开始计算
+    assertEquals(State.OPEN, breaker.getState());
+    now += 99;
+    assertFalse(breaker.allowRequest());
+    now += 1;
+    assertTrue(breaker.allowRequest());
+    assertEquals(State.HALF_OPEN, breaker.getState());
+  }
+
+  private CircuitBreaker create(int windowSize, double failureRate, int minimumCalls, int halfOpenProbes) {
+    return new CircuitBreaker(windowSize, failureRate, minimumCalls, 100L, halfOpenProbes, () -> now);
+  }
+
+  private static void fail(CircuitBreaker breaker, int times) {
+    for (int i = 0; i < times; ++i) {
+      assertTrue(breaker.allowRequest());
+      breaker.onFailure();
+    }
+  }
+
+  private static void succeed(CircuitBreaker breaker, int times) {
+    for (int i = 0; i < times; ++i) {
+      assertTrue(breaker.allowRequest());
+      breaker.onSuccess();
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+package com.sdu.flink.table.functions.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.apache.flink.types.Row;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 以本地环境运行 {@link AsyncScalarFunctionRunner#orderedWait}, 校验输出顺序, 未完成请求数上限及超时输出
+ * */
+public class AsyncScalarFunctionRunnerTest {
+
+  private static final int ROWS = 32;
+  private static final int CAPACITY = 4;
+
+  // 本地环境中函数及 Sink 经序列化后执行, 通过静态变量收集结果
+  private static final List<Row> RESULTS = Collections.synchronizedList(new ArrayList<>());
+  private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+  private static final AtomicInteger MAX_IN_FLIGHT = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    RESULTS.clear();
+    IN_FLIGHT.set(0);
+    MAX_IN_FLIGHT.set(0);
+  }
+
+  @Test
+  public void testOrderedWait() throws Exception {
+    List<Row> inputs = new ArrayList<>();
+    for (int i = 0; i < ROWS; ++i) {
+      String key = "key-" + i;
+      // 先到达的请求延迟更长, 完成顺序与输入顺序相反
+      InMemoryStore.put(key, "value-" + i);
+      inputs.add(Row.of(i, key, (long) (ROWS - i)));
+    }
+    execute(inputs, 10_000L);
+
+    assertEquals(ROWS, RESULTS.size());
+    for (int i = 0; i < ROWS; ++i) {
+      Row result = RESULTS.get(i);
+      assertEquals(i, result.getField(0));
+      assertEquals("value-" + i, result.getField(3));
+    }
+    assertTrue("max in-flight " + MAX_IN_FLIGHT.get(), MAX_IN_FLIGHT.get() <= CAPACITY);
+  }
+
+  @Test
+  public void testTimeoutValue() throws Exception {
+    InMemoryStore.put("fast", "fast-value");
+    InMemoryStore.put("slow", "slow-value");
+    List<Row> inputs = new ArrayList<>();
+    inputs.add(Row.of(0, "fast", 0L));
+    inputs.add(Row.of(1, "slow", 5_000L));
+    inputs.add(Row.of(2, "fast", 0L));
+    execute(inputs, 200L);
+
+    assertEquals(3, RESULTS.size());
+    assertEquals("fast-value", RESULTS.get(0).getField(3));
+    assertEquals("TIMEOUT", RESULTS.get(1).getField(3));
+    assertEquals("fast-value", RESULTS.get(2).getField(3));
+  }
+
+  private static void execute(List<Row> inputs, long timeoutMillis) throws Exception {
+    StreamExecutionEnvironment env = StreamExecutionEnvironment.createLocalEnvironment(1);
+    DataStream<Row> input = env.fromCollection(inputs,
+        new RowTypeInfo(Types.INT, Types.STRING, Types.LONG));
+    AsyncScalarFunctionRunner
+        .orderedWait(input, new DelayedLookupFunction(), Types.STRING, timeoutMillis, CAPACITY, 1, 2)
+        .addSink(new SinkFunction<Row>() {
+          @Override
+          public void invoke(Row value, Context context) {
+            RESULTS.add(value);
+          }
+        });
+    env.execute("AsyncScalarFunctionRunnerTest");
+  }
+
+  /**
+   * 按指定延迟查询 {@link InMemoryStore}, 记录同时执行的请求数
+   * */
+  public static class DelayedLookupFunction extends QAsyncScalarFunction<String> {
+
+    public String eval(String key, Long latencyMillis) {
+      MAX_IN_FLIGHT.accumulateAndGet(IN_FLIGHT.incrementAndGet(), Math::max);
+      try {
+        return InMemoryStore.get(key, latencyMillis);
+      } finally {
+        IN_FLIGHT.decrementAndGet();
+      }
+    }
+
+    @Override
+    public String getTimeoutValue() {
+      return "TIMEOUT";
+    }
+
+    @Override
+    public String getMetricPrefix() {
+      return "DelayedLookupFunction";
+    }
+
+  }
+
+}
@@ -0,0 +1,33 @@
+package com.sdu.flink.table.functions.template;
+
+import com.sdu.flink.table.functions.enhance.TableFunctionEnhance;
+import org.apache.flink.types.Row;
+
+/**
+ * 输出每个单词后, 遇到 "!" 时抛出异常
+ * */
+@TableFunctionEnhance
+public class FailingTableFunction extends QTableFunction<Row> {
+
+  public void eval(String str) {
+    for (String word : str.split(",")) {
+      if (word.equals("!")) {
+        throw new IllegalArgumentException("Illegal word: " + word);
+      }
+      Row row = nextRow(1);
+      row.setField(0, word);
+      emit(row);
+    }
+  }
+
+  @Override
+  public Row getDefaultValue() {
+    return Row.of("DEFAULT");
+  }
+
+  @Override
+  public String getMetricPrefix() {
+    return "FailingTableFunction";
+  }
+
+}
@@ -0,0 +1,32 @@
+package com.sdu.flink.table.functions.template;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内 KV 存储, 以固定延迟模拟 RocksDB 等本地存储的阻塞读
+ * */
+public class InMemoryStore {
+
+  private static final Map<String, String> STORE = new ConcurrentHashMap<>();
+
+  private InMemoryStore() {
+
+  }
+
+  public static void put(String key, String value) {
+    STORE.put(key, value);
+  }
+
+  public static String get(String key, long latencyMillis) {
+    try {
+      TimeUnit.MILLISECONDS.sleep(latencyMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while reading key: " + key, e);
+    }
+    return STORE.get(key);
+  }
+
+}
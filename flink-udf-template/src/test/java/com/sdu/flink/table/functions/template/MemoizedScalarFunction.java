@@ -0,0 +1,29 @@
+package com.sdu.flink.table.functions.template;
+
+import com.sdu.flink.table.functions.enhance.ScalarFunctionEnhance;
+
+@ScalarFunctionEnhance(memoize = true, memoizeSize = 2)
+public class MemoizedScalarFunction extends QScalarFunction {
+
+  // 方法体实际执行次数
+  public int invocations;
+
+  public String eval(String str) {
+    ++invocations;
+    return str == null ? null : str.toUpperCase();
+  }
+
+  public long eval(long value, Integer scale) {
+    ++invocations;
+    if (scale == null) {
+      return value;
+    }
+    return value * scale;
+  }
+
+  @Override
+  public String getMetricPrefix() {
+    return "MemoizedScalarFunction";
+  }
+
+}
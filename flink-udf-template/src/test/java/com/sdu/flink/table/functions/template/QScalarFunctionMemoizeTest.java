@@ -0,0 +1,58 @@
+package com.sdu.flink.table.functions.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 校验 @ScalarFunctionEnhance(memoize = true) 生成的 eval 结果缓存
+ * */
+public class QScalarFunctionMemoizeTest {
+
+  private MemoizedScalarFunction function;
+
+  @Before
+  public void setUp() throws Exception {
+    function = new MemoizedScalarFunction();
+    function.open(TestFunctionContexts.create(Collections.emptyMap()));
+  }
+
+  @Test
+  public void testRepeatedArgumentsHitCache() {
+    assertEquals("A", function.eval("a"));
+    assertEquals("A", function.eval("a"));
+    assertEquals(1, function.invocations);
+
+    // eval 重载按 id 区分, 结果类型各自缓存
+    assertEquals(6L, function.eval(2L, 3));
+    assertEquals(6L, function.eval(2L, 3));
+    assertEquals(2, function.invocations);
+  }
+
+  @Test
+  public void testNullArguments() {
+    assertNull(function.eval(null));
+    assertNull(function.eval(null));
+    assertEquals(2L, function.eval(2L, null));
+    assertEquals(2L, function.eval(2L, null));
+    assertEquals(2, function.invocations);
+  }
+
+  @Test
+  public void testEviction() {
+    function.eval("a");
+    function.eval("b");
+    function.eval("c");
+    assertEquals(3, function.invocations);
+
+    // memoizeSize = 2: a 已被淘汰, c 仍在缓存中
+    function.eval("c");
+    assertEquals(3, function.invocations);
+    function.eval("a");
+    assertEquals(4, function.invocations);
+  }
+
+}
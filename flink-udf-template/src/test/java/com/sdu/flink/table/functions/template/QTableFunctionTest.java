@@ -0,0 +1,151 @@
+package com.sdu.flink.table.functions.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.flink.types.Row;
+import org.apache.flink.util.Collector;
+import org.junit.Test;
+
+/**
+ * 校验 {@link QTableFunction} 的批次输出, Row 复用及异常时丢弃未输出的数据
+ * */
+public class QTableFunctionTest {
+
+  @Test
+  public void testBatchFlushedAtEndOfEval() throws Exception {
+    SimpleTableFunction function = new SimpleTableFunction();
+    RecordingCollector collector = open(function, "2", "false");
+
+    function.eval("a,bb,ccc", ",");
+    assertEquals(Arrays.asList("a:1", "bb:2", "ccc:3"), collector.values);
+
+    function.eval("dddd", ",");
+    assertEquals(Arrays.asList("a:1", "bb:2", "ccc:3", "dddd:4"), collector.values);
+  }
+
+  @Test
+  public void testRowPooling() throws Exception {
+    SimpleTableFunction function = new SimpleTableFunction();
+    RecordingCollector collector = open(function, "64", "false");
+
+    function.eval("a,b", ",");
+    List<Row> first = new ArrayList<>(collector.rows);
+    collector.rows.clear();
+    function.eval("c,d", ",");
+
+    // 同一批次位置复用 Row
+    assertSame(first.get(0), collector.rows.get(0));
+    assertSame(first.get(1), collector.rows.get(1));
+    assertTrue(first.get(0) != first.get(1));
+  }
+
+  @Test
+  public void testDiscardOnException() throws Exception {
+    FailingTableFunction function = new FailingTableFunction();
+    RecordingCollector collector = open(function, "64", "false");
+
+    // 异常前写入批次的数据被丢弃, 仅输出默认值
+    function.eval("a,b,!,c");
+    assertEquals(Collections.singletonList("DEFAULT"), collector.values);
+
+    function.eval("d");
+    assertEquals(Arrays.asList("DEFAULT", "d"), collector.values);
+  }
+
+  @Test
+  public void testDiscardOnRethrownException() throws Exception {
+    FailingTableFunction function = new FailingTableFunction();
+    RecordingCollector collector = open(function, "64", "true");
+
+    try {
+      function.eval("a,b,!,c");
+      fail("eval should throw exception");
+    } catch (IllegalArgumentException e) {
+      // 原异常直接抛出
+    }
+    assertTrue(collector.values.isEmpty());
+
+    function.eval("d");
+    assertEquals(Collections.singletonList("d"), collector.values);
+  }
+
+  @Test
+  public void testNotEnhancedEmitsImmediately() throws Exception {
+    PlainTableFunction function = new PlainTableFunction();
+    RecordingCollector collector = open(function, "64", "false");
+
+    function.eval("a,b");
+    assertEquals(Arrays.asList("a", "b"), collector.values);
+  }
+
+  private static RecordingCollector open(QTableFunction<Row> function, String batchSize, String throwException)
+      throws Exception {
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("udtf.emit.batch.size", batchSize);
+    parameters.put("throw.exception", throwException);
+    function.open(TestFunctionContexts.create(parameters));
+    RecordingCollector collector = new RecordingCollector();
+    function.setCollector(collector);
+    return collector;
+  }
+
+  /**
+   * 输出的 Row 被复用, 记录收到时的字段值
+   * */
+  private static class RecordingCollector implements Collector<Row> {
+
+    private final List<Row> rows = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+
+    @Override
+    public void collect(Row record) {
+      rows.add(record);
+      StringBuilder value = new StringBuilder(String.valueOf(record.getField(0)));
+      for (int i = 1; i < record.getArity(); ++i) {
+        value.append(':').append(record.getField(i));
+      }
+      values.add(value.toString());
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+  }
+
+  /**
+   * 未增强的子类: eval 不调用 before() / after()
+   * */
+  public static class PlainTableFunction extends QTableFunction<Row> {
+
+    public void eval(String str) {
+      for (String word : str.split(",")) {
+        Row row = nextRow(1);
+        row.setField(0, word);
+        emit(row);
+      }
+    }
+
+    @Override
+    public Row getDefaultValue() {
+      return null;
+    }
+
+    @Override
+    public String getMetricPrefix() {
+      return "PlainTableFunction";
+    }
+
+  }
+
+}
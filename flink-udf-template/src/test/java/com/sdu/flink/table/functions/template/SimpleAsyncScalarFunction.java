@@ -0,0 +1,27 @@
+package com.sdu.flink.table.functions.template;
+
+import com.sdu.flink.table.functions.enhance.ScalarFunctionEnhance;
+
+@ScalarFunctionEnhance
+public class SimpleAsyncScalarFunction extends QAsyncScalarFunction<String> {
+
+  public String eval(String key) {
+    return InMemoryStore.get(key, 5);
+  }
+
+  @Override
+  public String getDefaultStringValue() {
+    return "EMPTY";
+  }
+
+  @Override
+  public String getTimeoutValue() {
+    return "TIMEOUT";
+  }
+
+  @Override
+  public String getMetricPrefix() {
+    return "SimpleAsyncScalarFunction";
+  }
+
+}
@@ -6,10 +6,26 @@ import org.apache.flink.types.Row;
 @TableFunctionEnhance
 public class SimpleTableFunction extends QTableFunction<Row> {
 
+  public void eval(String str, String separator) {
+    if (str == null) {
+      return;
+    }
+    for (String word : str.split(separator)) {
+      Row row = nextRow(2);
+      row.setField(0, word);
+      row.setField(1, word.length());
+      emit(row);
+    }
+  }
+
   @Override
   public Row getDefaultValue() {
     return null;
   }
 
+  @Override
+  public String getMetricPrefix() {
+    return "SimpleTableFunction";
+  }
 
 }
@@ -0,0 +1,33 @@
+package com.sdu.flink.table.functions.template;
+
+import java.util.Collections;
+import java.util.Map;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.TaskInfo;
+import org.apache.flink.api.common.functions.util.RuntimeUDFContext;
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.table.functions.FunctionContext;
+
+/**
+ * 以指定作业参数创建 UDF 的 {@link FunctionContext}, 指标不上报
+ * */
+public class TestFunctionContexts {
+
+  private TestFunctionContexts() {
+
+  }
+
+  public static FunctionContext create(Map<String, String> jobParameters) {
+    ExecutionConfig config = new ExecutionConfig();
+    config.setGlobalJobParameters(ParameterTool.fromMap(jobParameters));
+    return new FunctionContext(new RuntimeUDFContext(
+        new TaskInfo("test", 1, 0, 1, 0),
+        TestFunctionContexts.class.getClassLoader(),
+        config,
+        Collections.emptyMap(),
+        Collections.emptyMap(),
+        new UnregisteredMetricsGroup()));
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.sdu.flink.table.metric;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.flink.metrics.HistogramStatistics;
+import org.junit.Test;
+
+/**
+ * 以可控时钟校验 {@link TimeWindowHistogram} 的分桶精度, 时间片过期及窗口合并
+ * */
+public class TimeWindowHistogramTest {
+
+  // 窗口 6s, 每个时间片 1s
+  private static final long WINDOW_MILLIS = 6_000L;
+  private static final int SLOTS = 6;
+
+  private long now = 3_600_000L;
+
+  @Test
+  public void testBucketIndex() {
+    // [0, 16) 每个值一个桶
+    for (int value = 0; value < 16; ++value) {
+      assertEquals(value, TimeWindowHistogram.bucketIndex(value));
+      assertEquals(value, TimeWindowHistogram.bucketValue(value));
+    }
+    // [16, 32) 桶宽为 1, [32, 64) 桶宽为 2
+    assertEquals(16, TimeWindowHistogram.bucketIndex(16));
+    assertEquals(31, TimeWindowHistogram.bucketIndex(31));
+    assertEquals(32, TimeWindowHistogram.bucketIndex(32));
+    assertEquals(32, TimeWindowHistogram.bucketIndex(33));
+    assertEquals(33, TimeWindowHistogram.bucketIndex(34));
+    // 超出可记录范围的值计入最后一个桶
+    int last = TimeWindowHistogram.bucketIndex((1L << 40) - 1);
+    assertEquals(last, TimeWindowHistogram.bucketIndex(1L << 40));
+    assertEquals(last, TimeWindowHistogram.bucketIndex(Long.MAX_VALUE));
+
+    // 桶序号单调, 代表值落在本桶内
+    int previous = 0;
+    for (long value = 1; value < (1L << 40); value += Math.max(1, value >>> 7)) {
+      int index = TimeWindowHistogram.bucketIndex(value);
+      assertTrue("value " + value, index >= previous);
+      previous = index;
+    }
+    for (int index = 0; index <= last; ++index) {
+      assertEquals(index, TimeWindowHistogram.bucketIndex(TimeWindowHistogram.bucketValue(index)));
+    }
+  }
+
+  @Test
+  public void testBucketValueError() {
+    for (long value = 1; value < (1L << 40); value += Math.max(1, value >>> 5)) {
+      long represent = TimeWindowHistogram.bucketValue(TimeWindowHistogram.bucketIndex(value));
+      assertTrue("value " + value + ", represent " + represent, Math.abs(represent - value) * 16 <= value);
+    }
+  }
+
+  @Test
+  public void testQuantile() {
+    TimeWindowHistogram histogram = create();
+    for (long value = 1; value <= 10_000; ++value) {
+      histogram.update(value);
+    }
+
+    HistogramStatistics statistics = histogram.getStatistics();
+    assertEquals(10_000, histogram.getCount());
+    assertEquals(10_000, statistics.size());
+    assertEquals(1, statistics.getMin());
+    assertEquals(10_000, statistics.getMax());
+    // 均值按精确值统计
+    assertEquals(5_000.5, statistics.getMean(), 0.0);
+
+    double[] quantiles = {0.5, 0.75, 0.95, 0.99, 0.999};
+    for (double quantile : quantiles) {
+      double expected = quantile * 10_000;
+      double actual = statistics.getQuantile(quantile);
+      assertTrue("quantile " + quantile + ": " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+    // 代表值不超出实际观测范围
+    assertEquals(1.0, statistics.getQuantile(0.0), 0.0);
+    assertTrue(statistics.getQuantile(1.0) <= 10_000.0);
+  }
+
+  @Test
+  public void testSlotExpiry() {
+    TimeWindowHistogram histogram = create();
+    histogram.update(100);
+    now += 1_000;
+    histogram.update(200);
+    assertEquals(2, histogram.getStatistics().size());
+
+    // 第一个时间片滑出窗口
+    now += 5_000;
+    HistogramStatistics statistics = histogram.getStatistics();
+    assertEquals(1, statistics.size());
+    assertEquals(200, statistics.getMin());
+    assertEquals(200, statistics.getMax());
+
+    // 写入复用过期的时间片, 先重置旧数据
+    histogram.update(300);
+    statistics = histogram.getStatistics();
+    assertEquals(2, statistics.size());
+    assertEquals(200, statistics.getMin());
+    assertEquals(300, statistics.getMax());
+    assertEquals(250.0, statistics.getMean(), 0.0);
+    // 总调用次数不随窗口滑动
+    assertEquals(3, histogram.getCount());
+
+    // 整个窗口无写入
+    now += WINDOW_MILLIS;
+    statistics = histogram.getStatistics();
+    assertEquals(0, statistics.size());
+    assertEquals(0.0, statistics.getQuantile(0.5), 0.0);
+    assertEquals(0, statistics.getValues().length);
+  }
+
+  @Test
+  public void testWindowMerge() {
+    TimeWindowHistogram histogram = create();
+    histogram.update(10);
+    now += 1_000;
+    histogram.update(1_000);
+    histogram.update(1_000);
+    now += 1_500;
+    histogram.update(100);
+
+    HistogramStatistics statistics = histogram.getStatistics();
+    assertEquals(4, statistics.size());
+    assertEquals(10, statistics.getMin());
+    assertEquals(1_000, statistics.getMax());
+    assertEquals(527.5, statistics.getMean(), 0.0);
+    // 非空桶的代表值, 按桶序号排列
+    assertArrayEquals(new long[]{
+        10,
+        TimeWindowHistogram.bucketValue(TimeWindowHistogram.bucketIndex(100)),
+        TimeWindowHistogram.bucketValue(TimeWindowHistogram.bucketIndex(1_000))
+    }, statistics.getValues());
+    // 合并后按 [10, 100, 1000, 1000] 计算分位数
+    assertEquals(1_000.0, statistics.getQuantile(0.75), 1_000.0 / 16);
+    assertEquals(100.0, statistics.getQuantile(0.5), 100.0 / 16);
+  }
+
+  private TimeWindowHistogram create() {
+    return new TimeWindowHistogram(WINDOW_MILLIS, SLOTS, () -> now);
+  }
+
+}